@@ -8,23 +8,32 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.List;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.SwingUtilities;
-
-import minesweeper.model.Field;
-import minesweeper.model.FieldState;
-import minesweeper.model.FieldValue;
+import javax.swing.SwingWorker;
+
+import minesweeper.model.BoardBenchmark;
+import minesweeper.model.BoardGenerator;
+import minesweeper.model.CellChanges;
+import minesweeper.model.ElapsedTime;
+import minesweeper.model.GameSession;
+import minesweeper.model.GameStatus;
 import minesweeper.model.HighscoreRecord;
 import minesweeper.model.Highscores;
 import minesweeper.model.Level;
 import minesweeper.model.Minefield;
+import minesweeper.model.MinesGenerator;
+import minesweeper.model.SafeZone;
+import minesweeper.model.solver.NoGuessGenerator;
+import minesweeper.model.solver.ProbabilityEngine;
+import minesweeper.model.solver.Solver;
+import minesweeper.model.store.HighscoresPersistence;
+import minesweeper.model.store.RecordVisitor;
+import minesweeper.server.ScoreClient;
 import minesweeper.views.AppWindow;
 import minesweeper.views.ChooseLevelView;
 import minesweeper.views.GameView;
@@ -32,8 +41,9 @@ import minesweeper.views.HighscoresView;
 import minesweeper.views.LoseView;
 import minesweeper.views.PauseView;
 import minesweeper.views.WinView;
-import minesweeper.views.components.FieldButton;
 import minesweeper.views.components.LevelPanel;
+import minesweeper.views.components.MinefieldCanvas;
+import minesweeper.views.components.MinefieldComponent;
 import minesweeper.views.components.MinefieldPanel;
 import minesweeper.views.fx.ShakeEffect;
 import minesweeper.views.fx.SoundPlayer;
@@ -46,14 +56,30 @@ import minesweeper.views.utils.AssetsManager;
  */
 public class GameEngine implements Runnable {
 	private Minefield _minefield;	// minefield model data (the game matrix)
+	private GameSession _session;	// game rules for the current minefield
+	private Minefield _hintBoard;	// what the player can see of the current minefield- its opened & flagged fields (created on the first hint)
+	private CellChanges _hintChanges;	// fields changed by moves, not copied to the hint board yet (while a hint is computed)
+	private BitSet _hintPending;	// the fields in _hintChanges
+	private Solver _solver;			// certainly safe fields & mines of the hint board (created by the first hint computation)
+	private ProbabilityEngine _probabilities;	// mine probabilities, for hints when no field is certainly safe
+	private HintWorker _hintWorker;	// the running hint computation (null if there is none)
+	private BoardGenerator _boardGenerator = new MinesGenerator(SafeZone.CELL);	// mines placement for new games
+	private NoGuessGenerator _noGuessGenerator = new NoGuessGenerator(_boardGenerator);	// mines placement for "no guessing" levels
+	private boolean _generating;	// the board of a "no guessing" level is searched (the board ignores clicks meanwhile)
 	private GameTimer _timer;		// game timer
-	private boolean _onGame;		// if game is running or not
 	private AppWindow _window;		// the main application window
 	private GameView _gameView;		// the game view panel
 	private Level _level;			// the current level
 	private Highscores _highscores;	// the highscores model data
 	private String _lastPlayerName = "Player 1";	// last player name
-	private static final String HIGHSCORES_FILE = "Highscores";	// highscores file name
+	private HighscoresPersistence _highscoresPersistence;	// the highscores files
+	private ScoreClient _scoreClient;	// submits the highscores to the score server (null if there is none)
+	private static final String HIGHSCORES_FILE = "Highscores.dat";	// highscores file name (snapshot)
+	private static final String HIGHSCORES_JOURNAL_FILE = "Highscores.journal";	// highscores saved after the snapshot
+	private static final String LEGACY_HIGHSCORES_FILE = "Highscores";	// highscores file name of old versions (serialized records)
+	private static final String SCORE_SERVER_PROPERTY = "minesweeper.scoreServer";	// host:port of a score server (optional)
+	private static final int CANVAS_MIN_FIELDS = 2500;	// boards with this many fields are always painted as a canvas
+	private static final String GUESS_STATUS = "No board without guessing was found in %d tries- this board may need a guess";
 
 	/*
 	 * (non-Javadoc)
@@ -72,10 +98,11 @@ public class GameEngine implements Runnable {
 		_level = Level.easy();
 		AssetsManager.updateLevelUI(_level);
 		loadHighscores();
+		connectScoreServer();
 		_minefield = generateMinefield();
 
 		// create application window, and show the game view
-		_window = new AppWindow(new MinefieldPanel(_minefield, new FieldClickListener()));
+		_window = new AppWindow(createMinefieldComponent());
 		_gameView = _window.getGameView();
 		_gameView.updateLevelUI();
 		_timer = new GameTimer(_gameView.getTimerLabel());
@@ -100,149 +127,151 @@ public class GameEngine implements Runnable {
 		final HighscoresView highscoresView = _window.getHighscoresView();
 		highscoresView.setHighscores(_highscores);
 		highscoresView.addBackListener(new PauseListener());
+		highscoresView.addFilterListener(new HighscoresFilterListener());
+		highscoresView.addSortListener(new HighscoresSortListener());
 
+		_window.addWindowListener(new ExitApplicationListener());	// write the saved highscores before the window exits
 		_window.getWinView().addContinueListener(new WinGameContinueListener());
 		_gameView.setPauseListener(new PauseListener());
+		_gameView.setHintListener(new HintListener());
 
 		resetUIForNewGame();		
 	}
 
 	/**
-	 * save the highscores records to the disk
+	 * open the highscores files (migrate the old highscores file the first time),
+	 * initialize new highscores model object, index the saved records, and start the highscores writer
+	 * (the records are saved through the highscores model, and written to the disk by the writer thread)
 	 */
-	private void saveHighscores() {
+	private void loadHighscores() {
 		try {
-			FileOutputStream fileOutputStream = new FileOutputStream(HIGHSCORES_FILE);
-			ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
-			objectOutputStream.writeObject(_highscores.getRecords());
-			objectOutputStream.close();
-			fileOutputStream.close();
-		} catch (Exception ex) {
-			System.err.println(ex.getMessage());
+			_highscoresPersistence = new HighscoresPersistence(new File(HIGHSCORES_FILE), new File(HIGHSCORES_JOURNAL_FILE));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			_highscores = new Highscores();
+			return;
 		}
+
+		try {
+			_highscoresPersistence.migrate(new File(LEGACY_HIGHSCORES_FILE));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+
+		_highscores = new Highscores(_highscoresPersistence);
+		try {
+			_highscoresPersistence.load(new RecordVisitor() {
+				@Override
+				public void visit(long sequence, HighscoreRecord record) {
+					_highscores.index(sequence, record);
+				}
+			});
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+
+		_highscoresPersistence.start();
 	}
 
 	/**
-	 * load the highscores file and initialize new highscores model object with the loaded records
+	 * start submitting the highscores to the score server, if one is configured (-Dminesweeper.scoreServer=host:port)
 	 */
-	@SuppressWarnings("unchecked")
-	private void loadHighscores() {
+	private void connectScoreServer() {
+		String address = System.getProperty(SCORE_SERVER_PROPERTY);
+		if (address == null)
+			return;
+
 		try {
-			// try load the highscores file
-			File highscoresFile = new File(HIGHSCORES_FILE);
-			ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(highscoresFile));
-			_highscores = new Highscores(((List<HighscoreRecord>)objectInputStream.readObject()));
-			objectInputStream.close();
-		} catch (EOFException fileNotFoundException) {
-			// in case of exception- initialize new highscores object
-			_highscores = new Highscores();
-		} catch (Exception e) {
+			_scoreClient = new ScoreClient(ScoreClient.parseAddress(address));
+			_scoreClient.start();
+		} catch (IllegalArgumentException e) {
 			System.err.println(e.getMessage());
-			_highscores = new Highscores();
 		}
 	}
 
 	/**
-	 * generate new {@link Minefield} for the current {@link Level}
-	 * @return new empty {@link Minefield} for a new game
+	 * write the saved highscores, send them to the score server, and exit
 	 */
-	private Minefield generateMinefield() {
-		return new Minefield(_level);
+	private void exitApplication() {
+		if (_highscoresPersistence != null)
+			_highscoresPersistence.close();
+		if (_scoreClient != null)
+			_scoreClient.close();
+		System.exit(0);
 	}
 
 	/**
-	 * assign random mines, in the beginning of the game
-	 * @param ignoreField the field which represented by the {@link FieldButton} the user click on. we need this field to validate that no mine will be there when assigning the mines.
+	 * generate new {@link Minefield} for the current {@link Level}, and a new {@link GameSession} for playing it
+	 * @return new empty {@link Minefield} for a new game
 	 */
-	private void assignRandomMines(Field ignoreField) {
-		int remainingMines = _minefield.getMines();
-
-		while (remainingMines > 0) {
-			// generate random row & column indexes
-			int randomRow = (int) (Math.random() * (_minefield.getSize().getHeight()));
-			int randomCol = (int) (Math.random() * (_minefield.getSize().getWidth()));
-
-			// get field model
-			Field field = _minefield.getField(randomRow, randomCol);
-
-			// if the field is not ignored, and the field value is not equals to mine
-			if (!field.getValue().equals(FieldValue.MINE) && field != ignoreField) {
-				field.setValue(FieldValue.MINE);  // place a mine inside the field
-
-				// increment the numbers around this field
-				for (int dr = -1; dr <= 1; dr++) {
-					for (int dc = -1; dc <= 1; dc++) {
-						if (inBoard(randomRow + dr, randomCol + dc)) {
-							Field f = _minefield.getField(randomRow + dr, randomCol + dc);
-							f.setValue(f.getValue().nextValue());
-						}
-					}
-				}
-
-				remainingMines--;
-			}
-		}
+	private Minefield generateMinefield() {
+		Minefield minefield = new Minefield(_level);
+		_session = new GameSession(minefield, _level.isNoGuess() ? _noGuessGenerator : _boardGenerator);
+
+		// the hints are created only when the player asks for one
+		_hintBoard = null;
+		_hintChanges = null;
+		_hintPending = null;
+		_solver = null;
+		_probabilities = null;
+		_hintWorker = null;
+		_generating = false;
+		return minefield;
 	}
 
 	/**
-	 * open all the fields in the board (in case of GAME OVER for example)
+	 * create the board view for the current minefield- a single canvas for canvas levels or very large boards, or a field buttons grid
+	 * @return new board view
 	 */
-	private void openAllFields() {
-		for (int i = 0; i < _minefield.getSize().getHeight(); i++) {
-			for (int j = 0; j < _minefield.getSize().getWidth(); j++) {
-				_gameView.openField(i, j);
-			}
-		}
+	private MinefieldComponent createMinefieldComponent() {
+		if (_level.isCanvasRendering() || _minefield.getCellsCount() >= CANVAS_MIN_FIELDS)
+			return new MinefieldCanvas(_minefield, new FieldClickListener());
+		return new MinefieldPanel(_minefield, new FieldClickListener());
 	}
 
 	/**
 	 * open a specific field
-	 * @param fieldButton to open
-	 */
-	private void openField(FieldButton fieldButton) {
-		// open the field only if is enable and not flagged
-		if (fieldButton.isEnabled() && !fieldButton.isFlagged()) {
-			if (fieldButton.isMine()) {
-				// if the field is mine - lose the game
-				_onGame = false;
-				_timer.stop();
-				SwingUtilities.invokeLater(new ShakeEffect(_window)); 	// shake the window
-				SoundPlayer.playLoseGameSound();
-				openAllFields();	// open all fields
-				_window.getLoseView().placeMinefield(_gameView.getMinefieldPanel());
-				fieldButton.setMineClickIcon(); // change the icon of the field that triggered the explosion
-				_window.showView(_window.getLoseView());	// show lose view
-			} else {
-				// if the field is not mine - clear it recursively
-				clearField(fieldButton.getRow(), fieldButton.getCol());
-				_gameView.repaint();
-			}
+	 * @param row
+	 * @param col
+	 */
+	private void openField(int row, int col) {
+		// the first open places the mines- start the timer
+		// (the board of a "no guessing" level is searched off the event thread first, see BoardWorker)
+		boolean newGame = _session.getStatus() == GameStatus.NEW;
+		if (newGame && _level.isNoGuess() && !_noGuessGenerator.isPrepared(_minefield, row, col)) {
+			_generating = true;
+			_gameView.setGenerating(true);
+			new BoardWorker(row, col).execute();
+			return;
 		}
+
+		CellChanges changes = _session.open(row, col);
+		if (newGame)
+			_timer.start();
+
+		_gameView.updateFields(changes, _session.getStatus() == GameStatus.LOST);
+		updateHints(changes);
+
+		if (_session.getStatus() == GameStatus.LOST)
+			loseGame();
 	}
 
 	/**
-	 * clear the field recursively
-	 * @param row	field row
-	 * @param col	field column
+	 * lose the game:
+	 * stop the timer, shake the window, mark the exploded mine and show {@link LoseView} view
 	 */
-	private void clearField(int row, int col) {
-		if (inBoard(row, col)) {	// if the field is in board
-			Field field = _minefield.getField(row, col);	//	get the field data
-			if (!field.getValue().equals(FieldValue.MINE) && !field.getState().equals(FieldState.FLAGGED) && !field.getState().equals(FieldState.OPENED)) {
-				// open the field if is not mine, and if was not flagged yet, and if was not opened yet
-				_gameView.openField(row, col);
-				field.setState(FieldState.OPENED);
+	private void loseGame() {
+		_timer.stop();
+		SwingUtilities.invokeLater(new ShakeEffect(_window)); 	// shake the window
+		SoundPlayer.playLoseGameSound();
+		_window.getLoseView().placeMinefield(_gameView.getBoardView());
 
-				// open fields recursively only if field value is zero
-				if (field.getValue().equals(FieldValue.ZERO)) {
-					for (int dr = -1; dr <= 1; dr++) {
-						for (int dc = -1; dc <= 1; dc++) {
-							clearField(row + dr, col + dc);
-						}
-					}
-				}
-			}
-		}
+		// change the icon of the field that triggered the explosion
+		int explodedCell = _session.getExplodedCell();
+		int width = _minefield.getSize().getWidth();
+		_gameView.getMinefieldPanel().setMineClicked(explodedCell / width, explodedCell % width);
+
+		_window.showView(_window.getLoseView());	// show lose view
 	}
 
 	/**
@@ -253,34 +282,16 @@ public class GameEngine implements Runnable {
 	 * This may end the game if the user was wrong. On the other hand, 
 	 * if the user has marked fewer than k cells then the adjacent cells are
 	 * not opened, although the user sees them pressed temporarily
-	 * @param e mouse event
+	 * @param row
+	 * @param col
 	 */
-	private void clearFieldsAround(MouseEvent e) {
-		FieldButton fieldButton = ((FieldButton)e.getSource());
-
-		// only if the button is disabled, opened and its value is a number
-		if (!fieldButton.isEnabled() && fieldButton.getField().getState().equals(FieldState.OPENED) && !fieldButton.getValue().equals(FieldValue.MINE) && !fieldButton.getValue().equals(FieldValue.ZERO)) {
-			// count the flags around the button
-			int expectedFlags = Integer.parseInt(fieldButton.getValue().toString());
-			int totalFlags = 0;
-
-			for (int dr = -1; dr <= 1 && totalFlags <= expectedFlags; dr++) {
-				for (int dc = -1; dc <= 1 && totalFlags <= expectedFlags; dc++) {
-					if (inBoard(fieldButton.getRow() + dr, fieldButton.getCol() + dc) && _minefield.getField(fieldButton.getRow() + dr, fieldButton.getCol() + dc).getState().equals(FieldState.FLAGGED))
-						totalFlags++;
-				}
-			}
+	private void clearFieldsAround(int row, int col) {
+		CellChanges changes = _session.chord(row, col);
+		_gameView.updateFields(changes, _session.getStatus() == GameStatus.LOST);
+		updateHints(changes);
 
-			// if the flags around the button is equals to the field's number- open the fields recursively
-			if (totalFlags >= expectedFlags) {
-				for (int dr = -1; dr <= 1; dr++) {
-					for (int dc = -1; dc <= 1; dc++) {
-						if (inBoard(fieldButton.getRow() + dr, fieldButton.getCol() + dc))
-							openField(_gameView.getField(fieldButton.getRow() + dr, fieldButton.getCol() + dc));
-					}
-				}
-			}
-		}
+		if (_session.getStatus() == GameStatus.LOST)
+			loseGame();
 	}
 
 	/**
@@ -288,9 +299,8 @@ public class GameEngine implements Runnable {
 	 * generate new minefield for the current level, redraw the minefield panel, show game view, reset UI
 	 */
 	private void createNewGame() {
-		_onGame = false;
 		_minefield = generateMinefield();
-		_gameView.redrawMinefieldPanel(new MinefieldPanel(_minefield, new FieldClickListener()));
+		_gameView.redrawMinefieldPanel(createMinefieldComponent());
 		_window.showView(_gameView);
 		resetUIForNewGame();
 	}
@@ -306,39 +316,105 @@ public class GameEngine implements Runnable {
 		_timer.reset();
 		_window.getPauseView().toggleResumeButton(true);
 		_gameView.setFlags(_minefield.getFlags());
+		_gameView.setStatus("");
 		SoundPlayer.playNewGameSound();
 		_window.pack();
 	}
 
 	/**
-	 * flag a field
-	 * @param e
+	 * flag a field.
+	 * the flag is copied to the hint board, but the solver does not trust the player's flags
+	 * @param row
+	 * @param col
 	 */
-	private void flagField(MouseEvent e) {
-		FieldButton fieldButton = ((FieldButton)e.getSource());
+	private void flagField(int row, int col) {
+		CellChanges changes = _session.flag(row, col);
 
-		if (fieldButton.isEnabled()) {	// if the field button is enabled
-			if (fieldButton.isUnflagged() && _minefield.getFlags() > 0) {	// and the field button was not flagged yet, and the flags > 0
-				// mark the field as FLAGGED
-				fieldButton.flag();
-				_minefield.decrementFlags();
+		if (changes.size() > 0) {
+			_gameView.updateFields(changes, false);
+			updateHints(changes);
+			if (_minefield.getCellState(_minefield.getIndex(row, col)) == Minefield.STATE_FLAGGED)
 				SoundPlayer.playFlagSound();
-				// if it is correct flag (there is a mine in this field)- increment the correct flags counter
-				if (fieldButton.getField().getValue().equals(FieldValue.MINE)) {
-					_minefield.incrementCorrectFlags();
-				}
-			} else if (fieldButton.isFlagged()) {
-				// unflag the field
-				fieldButton.unflag();
-				_minefield.incrementFlags();
+			else
 				SoundPlayer.playUnflagSound();
-			}
 		}
 
 		// update flags label
 		_gameView.setFlags(_minefield.getFlags());
 	}
 
+	/**
+	 * create the hint board on the first hint- a copy of the opened & flagged fields of the minefield
+	 * (the only full scan- afterwards every move is copied by {@link #updateHints})
+	 */
+	private void createHintBoard() {
+		_hintBoard = new Minefield(_minefield.getSize().getWidth(), _minefield.getSize().getHeight(), _minefield.getMines(), _minefield.getSeed());
+		_hintChanges = new CellChanges(_hintBoard);
+		_hintPending = new BitSet(_hintBoard.getCellsCount());
+
+		for (int index = 0; index < _minefield.getCellsCount(); index++) {
+			if (_minefield.getCellState(index) != Minefield.STATE_UNFLAGGED)
+				copyHintField(index);
+		}
+	}
+
+	/**
+	 * copy the fields changed by a move to the hint board, and update the solver by them.
+	 * while a hint is computed, the worker owns the hint board & solver- the fields are kept until it is done
+	 * @param changes changed fields of the move
+	 */
+	private void updateHints(CellChanges changes) {
+		if (_hintBoard == null)
+			return;		// no hint was asked yet
+
+		for (int i = 0; i < changes.size(); i++) {
+			int index = changes.get(i);
+			if (!_hintPending.get(index)) {
+				_hintPending.set(index);
+				_hintChanges.add(index);
+			}
+		}
+
+		if (_hintWorker == null)
+			applyHintChanges();
+	}
+
+	/**
+	 * copy the pending fields to the hint board, and update the solver by them
+	 * (in the size of the moves- the numbers around the opened fields are checked again)
+	 */
+	private void applyHintChanges() {
+		for (int i = 0; i < _hintChanges.size(); i++) {
+			copyHintField(_hintChanges.get(i));
+		}
+
+		if (_solver != null)
+			_solver.update(_hintChanges);
+		_hintChanges.clear();
+		_hintPending.clear();
+	}
+
+	/**
+	 * copy a field's state to the hint board, and its value if it is opened (the hidden values are never copied)
+	 * @param index field index
+	 */
+	private void copyHintField(int index) {
+		int state = _minefield.getCellState(index);
+		if (state == Minefield.STATE_OPENED)
+			_hintBoard.setCellValue(index, _minefield.getCellValue(index));
+		_hintBoard.setCellState(index, state);
+	}
+
+	/**
+	 * highlight a hint field
+	 * @param cell field index
+	 * @param safe true if the field is certainly safe
+	 */
+	private void showHint(int cell, boolean safe) {
+		int width = _minefield.getSize().getWidth();
+		_gameView.getMinefieldPanel().setHint(cell / width, cell % width, safe);
+	}
+
 	/**
 	 * win the game:
 	 * stop the timer
@@ -347,11 +423,10 @@ public class GameEngine implements Runnable {
 	 */
 	private void winGame() {
 		_timer.stop();
-		_onGame = false;
 		_window.getPauseView().toggleResumeButton(false);
 		WinView view = _window.getWinView();
 		view.setPlayerName(_lastPlayerName);
-		view.setTime(_timer.toString());
+		view.setTime(ElapsedTime.formatMillis(_timer.getElapsedTime()));
 		_window.showView(view);
 		SoundPlayer.playWinGameSound();
 	}
@@ -362,8 +437,12 @@ public class GameEngine implements Runnable {
 	 */
 	private void saveHighscoreRecord(String playerName) {
 		_lastPlayerName = playerName;
-		_highscores.addRecord(new HighscoreRecord(playerName, _timer.toString(), _level));
-		saveHighscores();
+		int boardValue = BoardBenchmark.get3BV(_minefield);
+		HighscoreRecord record = new HighscoreRecord(playerName, _timer.getElapsedTime(), _timer.getPausedTime(), _level, boardValue, _session.getClicks());
+		_highscores.addRecord(record);
+		_highscores.setLevel(record.getLevelKey());	// show the new record's level
+		if (_scoreClient != null)
+			_scoreClient.submit(record);
 	}
 
 	/**
@@ -381,21 +460,11 @@ public class GameEngine implements Runnable {
 		}
 	}
 
-	/**
-	 * determine if a given cell (row & column) is in the game board
-	 * @param row
-	 * @param col
-	 * @return true if is in the game board, false if not
-	 */
-	private boolean inBoard(int row, int col) {
-		return (row >= 0 && row < _minefield.getSize().getHeight() && col >= 0 && col < _minefield.getSize().getWidth());
-	}
-
 	/**
 	 * show {@link HighscoresView} view
 	 */
 	private void showHighscores() {
-		_highscores.sort();
+		_window.getHighscoresView().setLevels(_highscores.getLevels(), _highscores.getLevel());
 		_window.showView(_window.getHighscoresView());
 		_window.pack();
 	}
@@ -427,7 +496,10 @@ public class GameEngine implements Runnable {
 		@Override
 		public void mouseReleased(MouseEvent e) {
 			ChooseLevelView view = _window.getLevelView();
-			setLevel(Level.custom(view.getCustomWidth(), view.getCustomHeight(), view.getCustomMines()));
+			Level level = Level.custom(view.getCustomWidth(), view.getCustomHeight(), view.getCustomMines());
+			level.setCanvasRendering(view.isCustomCanvasRendering());
+			level.setNoGuess(view.isNoGuess());
+			setLevel(level);
 			createNewGame();
 		}
 	}
@@ -441,6 +513,7 @@ public class GameEngine implements Runnable {
 		@Override
 		public void mouseReleased(MouseEvent e) {
 			LevelPanel source = (LevelPanel)e.getSource();
+			source.getLevel().setNoGuess(_window.getLevelView().isNoGuess());
 			setLevel(source.getLevel());
 			createNewGame();
 		}
@@ -470,37 +543,190 @@ public class GameEngine implements Runnable {
 		 */
 		@Override
 		public void mousePressed(MouseEvent e) {
+			if (_generating)
+				return;
+
 			int bothMask = InputEvent.BUTTON1_DOWN_MASK | InputEvent.BUTTON3_DOWN_MASK;
-			if ((e.getModifiersEx() & bothMask) == bothMask){
-				clearFieldsAround(e);
+			MinefieldComponent minefieldPanel = _gameView.getMinefieldPanel();
+			if ((e.getModifiersEx() & bothMask) == bothMask && minefieldPanel.getRow(e) >= 0 && minefieldPanel.getCol(e) >= 0){
+				clearFieldsAround(minefieldPanel.getRow(e), minefieldPanel.getCol(e));
 			}
 		}
 
 		@Override
 		public void mouseReleased(MouseEvent e) {
-			if (SwingUtilities.isLeftMouseButton(e)) {	//	Left click = open a field
-				FieldButton fieldButton = ((FieldButton)e.getSource());
+			if (_generating)
+				return;		// the first open is still placing the mines
 
-				// Assigning random mines & start the timer in the first click
-				if (!_onGame) {
-					assignRandomMines(((FieldButton)e.getSource()).getField());
-					_onGame = true;
-					_timer.start();
-				}
-				openField(fieldButton);
+			// map the event to a field (the board view knows its fields layout)
+			MinefieldComponent minefieldPanel = _gameView.getMinefieldPanel();
+			int row = minefieldPanel.getRow(e);
+			int col = minefieldPanel.getCol(e);
+			if (row < 0 || col < 0)
+				return;
+
+			if (SwingUtilities.isLeftMouseButton(e)) {	//	Left click = open a field
+				openField(row, col);
 			} else if (SwingUtilities.isRightMouseButton(e)) { //	Right click = flag a field
-				flagField(e);
+				flagField(row, col);
 			} else if (SwingUtilities.isMiddleMouseButton(e)) { // 	Middle click = open fields around the pressed field
-				clearFieldsAround(e);
+				clearFieldsAround(row, col);
 			}
 
-			if (_minefield.getCorrectFlags() == _minefield.getMines()) {
+			if (_session.getStatus() == GameStatus.WON) {
 				winGame();	// if the correct flags is equals to total mines
 			}
 
 		}
 	}
 
+	/**
+	 *  Board Worker- searches the board of a "no guessing" level on a background thread, then makes the first open
+	 *  (which only copies the prepared board). the player is told if the board may need a guess after all.
+	 *  the board is dropped if a new game was started meanwhile.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class BoardWorker extends SwingWorker<Boolean, Void> {
+		private GameSession _boardSession = _session;	// the game of the board
+		private Minefield _board = _minefield;
+		private int _row, _col;
+
+		/**
+		 * create a new board worker
+		 * @param row first click row
+		 * @param col first click column
+		 */
+		public BoardWorker(int row, int col) {
+			_row = row;
+			_col = col;
+		}
+
+		@Override
+		protected Boolean doInBackground() {
+			return _noGuessGenerator.prepare(_board, _row, _col);
+		}
+
+		@Override
+		protected void done() {
+			if (_session != _boardSession)
+				return;		// a new game was started
+
+			_generating = false;
+			_gameView.setGenerating(false);
+
+			boolean found;
+			try {
+				found = get();
+			} catch (InterruptedException | ExecutionException e) {
+				System.err.println(e.getMessage());
+				return;
+			}
+
+			openField(_row, _col);
+			if (!_gameView.isShowing())
+				_timer.stop();		// paused while the board was generated
+			if (!found)
+				_gameView.setStatus(String.format(GUESS_STATUS, _noGuessGenerator.getLastAttempts()));
+			if (_session.getStatus() == GameStatus.WON)
+				winGame();
+		}
+	}
+
+	/**
+	 *  Hint Listener- highlight a certainly safe field, or the lowest risk field if there is none.
+	 *  the solver is kept up to date by the moves, so a certainly safe field is shown right away.
+	 *  the first hint (which creates the solver) and the probabilities are computed off the event thread,
+	 *  on the hint board (see {@link HintWorker}). a hint asked while another one is computed is ignored.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class HintListener implements ActionListener {
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			if (_session.getStatus() == GameStatus.NEW) {
+				// the first click is always safe- suggest the center
+				_gameView.getMinefieldPanel().setHint(_minefield.getSize().getHeight() / 2, _minefield.getSize().getWidth() / 2, true);
+			} else if (_session.getStatus() == GameStatus.RUNNING && _hintWorker == null) {
+				int cell = (_solver != null) ? _solver.getSafeCell() : -1;
+				if (cell >= 0) {
+					showHint(cell, true);
+					return;
+				}
+
+				if (_hintBoard == null)
+					createHintBoard();
+				_hintWorker = new HintWorker();
+				_hintWorker.execute();
+			}
+		}
+	}
+
+	/**
+	 *  Hint Worker- computes a hint on a background thread.
+	 *  the solver (and the probabilities engine) is created by the first hint of a game. only a guess needs the
+	 *  probabilities computation- a component with too many states to count is approximated (see {@link ProbabilityEngine#isExact()}),
+	 *  so an approximated hint is never shown as safe. the worker owns the hint board, solver & engine until it is done
+	 *  (the moves meanwhile are copied afterwards), and the result is dropped if a new game was started.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class HintWorker extends SwingWorker<Void, Void> {
+		private GameSession _hintSession = _session;	// the game of the hint
+		private Minefield _board = _hintBoard;
+		private Solver _hintSolver = _solver;
+		private ProbabilityEngine _hintProbabilities = _probabilities;
+		private int _cell;
+		private boolean _safe;
+
+		@Override
+		protected Void doInBackground() {
+			if (_hintSolver == null)
+				_hintSolver = new Solver(_board);	// solves everything opened so far
+
+			_cell = _hintSolver.getSafeCell();
+			_safe = (_cell >= 0);
+			if (!_safe) {
+				if (_hintProbabilities == null)
+					_hintProbabilities = new ProbabilityEngine(_hintSolver, _board);
+				_hintProbabilities.compute();
+				_cell = _hintProbabilities.getSafestCell();
+				_safe = (_cell >= 0 && _hintProbabilities.isExact() && _hintProbabilities.getProbability(_cell) == 0);
+			}
+			return null;
+		}
+
+		@Override
+		protected void done() {
+			if (_hintWorker == this)
+				_hintWorker = null;
+
+			try {
+				get();
+			} catch (InterruptedException | ExecutionException e) {
+				System.err.println(e.getMessage());
+				return;
+			}
+
+			if (_session != _hintSession)
+				return;		// a new game was started
+
+			_solver = _hintSolver;
+			_probabilities = _hintProbabilities;
+
+			// the player may have moved while the hint was computed- a safe field found by the moves is better
+			if (_hintChanges.size() > 0) {
+				applyHintChanges();
+				if (_solver.getSafeCell() >= 0) {
+					_cell = _solver.getSafeCell();
+					_safe = true;
+				}
+			}
+			if (_session.getStatus() == GameStatus.RUNNING && _cell >= 0 && _minefield.getCellState(_cell) != Minefield.STATE_OPENED)
+				showHint(_cell, _safe);
+		}
+	}
+
 	/**
 	 *  Win View - Save Highscores Record Listener
 	 *  @author     Lidan Hifi
@@ -515,6 +741,40 @@ public class GameEngine implements Runnable {
 		}
 	}
 
+	/**
+	 *  Highscores Filter Listener- show the selected level, or its personal bests
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class HighscoresFilterListener implements ActionListener {
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			HighscoresView view = _window.getHighscoresView();
+			_highscores.setPersonalBests(view.isPersonalBests());
+			if (view.getSelectedLevel() != null)
+				_highscores.setLevel(view.getSelectedLevel());
+			view.updateTableHeader();
+			view.scrollToTop();
+		}
+	}
+
+	/**
+	 *  Highscores Sort Listener- sort the highscores by the clicked column
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	class HighscoresSortListener extends MouseAdapter {
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			HighscoresView view = _window.getHighscoresView();
+			int column = view.getColumnAt(e.getPoint());
+			if (column >= 0) {
+				_highscores.sortBy(column);
+				view.scrollToTop();
+			}
+		}
+	}
+
 	/**
 	 *  Pause game Listener
 	 *  @author     Lidan Hifi
@@ -524,7 +784,7 @@ public class GameEngine implements Runnable {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			// stop the timer and show the pause view
-			if (_onGame)
+			if (_session.getStatus() == GameStatus.RUNNING)
 				_timer.stop();
 
 			_window.showView(_window.getPauseView());
@@ -540,7 +800,7 @@ public class GameEngine implements Runnable {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			// resume the timer and show the game view
-			if (_onGame)
+			if (_session.getStatus() == GameStatus.RUNNING)
 				_timer.start();
 
 			_window.showView(_gameView);
@@ -557,12 +817,12 @@ public class GameEngine implements Runnable {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			System.exit(0);
+			exitApplication();
 		}
 
 		@Override
 		public void windowClosing(WindowEvent e) {
-			System.exit(0);
+			exitApplication();
 		}
 
 		@Override
@@ -573,7 +833,7 @@ public class GameEngine implements Runnable {
 
 		@Override
 		public void mouseReleased(MouseEvent e) {
-			System.exit(0);
+			exitApplication();
 		}
 
 		@Override
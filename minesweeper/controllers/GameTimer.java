@@ -2,23 +2,42 @@ package minesweeper.controllers;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
 import javax.swing.JLabel;
 import javax.swing.Timer;
 
+import minesweeper.model.ElapsedTime;
+
 /**
  *  Game Timer
+ *  the time is measured with System.nanoTime(), which is monotonic (not affected by wall clock changes),
+ *  and kept as nanoseconds- the label shows whole seconds, the records keep the precise durations.
+ *  the pauses are measured too: their total time and count.
+ *  the label is updated by a single shot Swing timer, scheduled to the next whole second of the elapsed time
+ *  (or the next tenth of a second in precise mode- click the label to toggle), so the label never lags behind the time.
+ *  nothing is scheduled while the timer is stopped (paused, lost or won) or while the label is not showing.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class GameTimer implements Runnable {
+	private static final long INTERVAL = ElapsedTime.NANOS_PER_SECOND;				// label update interval
+	private static final long PRECISE_INTERVAL = ElapsedTime.NANOS_PER_SECOND / 10;	// label update interval in precise mode
+
 	private JLabel _timerLabel;
 	private Timer _timer;
-	
-	private long _startTime, _elapsedTime, _pauseTime;
 
-	private int seconds, minutes, hours;
+	private long _startTime;		// start of the current running interval (nanoTime)
+	private long _elapsedTime;		// running time of the previous intervals (nanoseconds)
+	private long _pauseStart;		// start of the current pause (nanoTime)
+	private long _pausedTime;		// total pauses time (nanoseconds)
+	private int _pauses;
 	private boolean _isRunning;
+	private boolean _isStarted;		// started since the last reset (a stop after it is a pause)
+	private boolean _isPrecise;		// show tenths of a second
 
 	/**
 	 * initialize new {@link GameTimer} object
@@ -26,17 +45,38 @@ public class GameTimer implements Runnable {
 	 */
 	public GameTimer(JLabel timerLabel) {
 		_timerLabel = timerLabel;
-		
-		// update the view every 1 second
-		_timer = new Timer(1000, new ActionListener() {
+
+		// update the view on the next interval boundary, and schedule the following update
+		_timer = new Timer(0, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				if (_isRunning)
+				updateTimeUI();
+				schedule();
+			}
+		});
+		_timer.setRepeats(false);
+		_timer.setCoalesce(true);
+
+		// stop the updates while the label is hidden, and catch up when it is shown again
+		_timerLabel.addHierarchyListener(new HierarchyListener() {
+			@Override
+			public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
 					updateTimeUI();
+					schedule();
+				}
+			}
+		});
+
+		// click the label to toggle precise mode
+		_timerLabel.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				setPrecise(!_isPrecise);
 			}
 		});
 	}
-	
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.lang.Runnable#run()
@@ -45,67 +85,128 @@ public class GameTimer implements Runnable {
 	public void run() {
 		start();
 	}
-	
+
 	/**
 	 * reset the timer values & view to zero
 	 */
 	public void reset() {
-		seconds = 0;
-		minutes = 0;
-		hours = 0;
-		_pauseTime = 0;
-		_startTime = 0;
-		
+		_timer.stop();
+		_isRunning = false;
+		_isStarted = false;
+		_elapsedTime = 0;
+		_pausedTime = 0;
+		_pauses = 0;
+
 		_timerLabel.setText(this.toString());
 	}
-	
+
 	/**
-	 * start timer
+	 * start the timer, or resume it after a pause
 	 */
 	public void start() {
-		if (_isRunning) {	// if timer is running (=not paused)
-			_startTime = System.currentTimeMillis();
-			_timer.start();
-		} else {
-			// if timer is not running (for example paused)
-			_startTime = System.currentTimeMillis() + _pauseTime;
-			_pauseTime = 0;
-			_timer.start();
-			_isRunning = true;
+		if (_isRunning)
+			return;
+
+		long now = System.nanoTime();
+		if (_isStarted) {
+			_pausedTime += now - _pauseStart;
+			_pauses++;
 		}
+
+		_startTime = now;
+		_isRunning = true;
+		_isStarted = true;
+		schedule();
 	}
-	
+
 	/**
 	 * stop/pause the timer
 	 */
 	public void stop() {
 		if (_isRunning) {
-			_pauseTime -= System.currentTimeMillis() - _startTime;
+			long now = System.nanoTime();
+			_elapsedTime += now - _startTime;
+			_pauseStart = now;
 			_timer.stop();
 			_isRunning = false;
+			updateTimeUI();
 		}
 	}
-	
+
+	/**
+	 * set precise mode- the label shows tenths of a second
+	 * @param precise
+	 */
+	public void setPrecise(boolean precise) {
+		_isPrecise = precise;
+		updateTimeUI();
+		schedule();
+	}
+
+	/**
+	 * check if the timer is in precise mode
+	 * @return true if the label shows tenths of a second
+	 */
+	public boolean isPrecise() {
+		return _isPrecise;
+	}
+
+	/**
+	 * get the total time the timer was running (without the pauses)
+	 * @return elapsed nanoseconds
+	 */
+	public long getElapsedTime() {
+		return _isRunning ? _elapsedTime + System.nanoTime() - _startTime : _elapsedTime;
+	}
+
+	/**
+	 * get the total time of the pauses (stops which were resumed)
+	 * @return paused nanoseconds
+	 */
+	public long getPausedTime() {
+		return _pausedTime;
+	}
+
+	/**
+	 * get the number of pauses (stops which were resumed)
+	 * @return pauses
+	 */
+	public int getPauses() {
+		return _pauses;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
 	public String toString() {
-		return (hours < 10 ? "0" : "") + hours + ":" + (minutes < 10 ? "0" : "") + minutes + ":" + (seconds < 10 ? "0" : "") + seconds;
+		long elapsedTime = getElapsedTime();
+		if (_isPrecise)
+			return ElapsedTime.format(elapsedTime) + "." + (elapsedTime / PRECISE_INTERVAL) % 10;
+		return ElapsedTime.format(elapsedTime);
 	}
-	
+
+	/**
+	 * schedule the next label update to the next interval boundary of the elapsed time,
+	 * or stop the updates if the timer is stopped or the label is not showing
+	 */
+	private void schedule() {
+		if (!_isRunning || !_timerLabel.isShowing()) {
+			_timer.stop();
+			return;
+		}
+
+		long interval = _isPrecise ? PRECISE_INTERVAL : INTERVAL;
+		long delay = interval - getElapsedTime() % interval;
+		_timer.setInitialDelay((int)((delay + ElapsedTime.NANOS_PER_MILLI - 1) / ElapsedTime.NANOS_PER_MILLI));	// round up- never before the boundary
+		_timer.restart();
+	}
+
 	/**
 	 * update the timer view with the current elapsed time
 	 */
 	private void updateTimeUI() {
-    	_elapsedTime = System.currentTimeMillis() - _startTime;
-    	
-    	// calculates the seconds, minutes and hours based on elapsed milliseconds
-    	seconds = (int)((_elapsedTime/1000) % 60);
-	    minutes = (int)((_elapsedTime/(1000*60)) % 60);
-	    hours = (int)((_elapsedTime/(1000*60*60)) % 24);
-	    
 		_timerLabel.setText(this.toString());
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package minesweeper.main;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.Field;
+import minesweeper.model.FieldState;
+import minesweeper.model.FieldValue;
+import minesweeper.model.FloodFill;
+import minesweeper.model.Minefield;
+import minesweeper.model.MinesGenerator;
+import minesweeper.model.SafeZone;
+
+/**
+ *  Flood Fill Benchmark- checks the iterative {@link FloodFill} against the old recursive open, and times both.
+ *  the old open (GameEngine.clearField, without its view calls) is kept here as it was.
+ *  check: on seeded boards of a few sizes & densities, with a few random flags, both opens are run from the same
+ *  fields on copies of the same board, and must open exactly the same fields.
+ *  timing: a large board (1000x1000 with 1% mines by default) is opened from its center. the recursion goes as deep
+ *  as the opened area, so the recursive open runs on a thread with a large stack (it overflows the default one).
+ *  usage: FloodFillBenchmark [size] [density] [runs]
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class FloodFillBenchmark {
+	private static final int DEFAULT_SIZE = 1000;
+	private static final double DEFAULT_DENSITY = 0.01;
+	private static final int DEFAULT_RUNS = 10;
+	private static final int CHECKED_BOARDS = 200;		// boards of every checked size & density
+	private static final int CHECKED_OPENS = 20;		// opens on every checked board
+	private static final long RECURSION_STACK = 2L << 30;	// bytes of the recursive open's thread stack
+
+	public static void main(String[] args) throws InterruptedException {
+		final int size = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+		final double density = (args.length > 1) ? Double.parseDouble(args[1]) : DEFAULT_DENSITY;
+		final int runs = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+		check();
+		checkDefaultStack(size, density);
+
+		// the recursive open needs a deep stack- the whole timing runs on a thread of its own
+		Thread timing = new Thread(null, new Runnable() {
+			@Override
+			public void run() {
+				time(size, density, runs);
+			}
+		}, "Flood Fill Benchmark", RECURSION_STACK);
+		timing.start();
+		timing.join();
+	}
+
+	/**
+	 * check that both opens open the same fields, on seeded boards
+	 */
+	private static void check() {
+		int[][] sizes = { { 9, 9 }, { 30, 16 }, { 100, 100 } };
+		double[] densities = { 0.01, 0.12, 0.2 };
+		long opens = 0;
+
+		for (int[] size : sizes) {
+			for (double density : densities) {
+				for (int seed = 0; seed < CHECKED_BOARDS; seed++) {
+					opens += check(size[0], size[1], Math.max((int)(size[0] * size[1] * density), 1), seed);
+				}
+			}
+		}
+
+		System.out.println(String.format("check: %d opens on %d boards- the same fields opened", opens, sizes.length * densities.length * CHECKED_BOARDS));
+	}
+
+	/**
+	 * open random fields of a seeded board by both opens, and compare the boards after every open
+	 * @param width
+	 * @param height
+	 * @param mines
+	 * @param seed
+	 * @return number of compared opens
+	 * @throws IllegalStateException if the opens differ
+	 */
+	private static int check(int width, int height, int mines, long seed) {
+		Minefield iterative = createBoard(width, height, mines, seed);
+		Minefield recursive = createBoard(width, height, mines, seed);
+		FloodFill floodFill = new FloodFill(iterative);
+		CellChanges changes = new CellChanges(iterative);
+		SplittableRandom random = new SplittableRandom(seed);
+
+		// a few flags, which both opens must stop at
+		for (int i = 0; i < iterative.getCellsCount() / 20; i++) {
+			int index = random.nextInt(iterative.getCellsCount());
+			iterative.setCellState(index, Minefield.STATE_FLAGGED);
+			recursive.setCellState(index, Minefield.STATE_FLAGGED);
+		}
+
+		int opens = 0;
+		for (int i = 0; i < CHECKED_OPENS; i++) {
+			int row = random.nextInt(height), col = random.nextInt(width);
+			changes.clear();
+			int opened = floodFill.fill(row, col, changes);
+			int recursiveOpened = clearField(recursive, row, col);
+
+			for (int index = 0; index < iterative.getCellsCount(); index++) {
+				if (iterative.getCellState(index) != recursive.getCellState(index))
+					throw new IllegalStateException(String.format("%dx%d seed %d: field %d differs after opening %d,%d", width, height, seed, index, row, col));
+			}
+			if (opened != recursiveOpened || opened != changes.size())
+				throw new IllegalStateException(String.format("%dx%d seed %d: %d fields opened, %d by the recursive open", width, height, seed, opened, recursiveOpened));
+			opens++;
+		}
+		return opens;
+	}
+
+	/**
+	 * try the recursive open on the default stack of the main thread
+	 * @param size board side
+	 * @param density mines density
+	 */
+	private static void checkDefaultStack(int size, double density) {
+		Minefield minefield = createBoard(size, size, (int)(size * size * density), 0);
+		try {
+			int opened = clearField(minefield, size / 2, size / 2);
+			System.out.println(String.format("recursive open on the default stack: %d fields opened", opened));
+		} catch (StackOverflowError e) {
+			System.out.println("recursive open on the default stack: stack overflow");
+		}
+	}
+
+	/**
+	 * time both opens on fresh copies of a large board
+	 * @param size board side
+	 * @param density mines density
+	 * @param runs timed runs (after as many warmup runs)
+	 */
+	private static void time(int size, double density, int runs) {
+		int mines = (int)(size * size * density);
+		long[] iterativeTimes = new long[runs], recursiveTimes = new long[runs];
+		int opened = 0;
+
+		for (int run = -runs; run < runs; run++) {	// the negative runs are warmup
+			Minefield iterative = createBoard(size, size, mines, run & 0xFF);
+			Minefield recursive = createBoard(size, size, mines, run & 0xFF);
+			CellChanges changes = new CellChanges(iterative);
+			FloodFill floodFill = new FloodFill(iterative);
+
+			long start = System.nanoTime();
+			opened = floodFill.fill(size / 2, size / 2, changes);
+			long iterativeTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			clearField(recursive, size / 2, size / 2);
+			long recursiveTime = System.nanoTime() - start;
+
+			if (run >= 0) {
+				iterativeTimes[run] = iterativeTime;
+				recursiveTimes[run] = recursiveTime;
+			}
+		}
+
+		Arrays.sort(iterativeTimes);
+		Arrays.sort(recursiveTimes);
+		System.out.println(String.format("%dx%d, %.1f%% mines, %d fields opened (last run), median of %d runs:", size, size, density * 100, opened, runs));
+		System.out.println(String.format("  iterative flood fill  %8.2f ms", iterativeTimes[runs / 2] / 1e6));
+		System.out.println(String.format("  recursive open        %8.2f ms (on a %d MB stack)", recursiveTimes[runs / 2] / 1e6, RECURSION_STACK >> 20));
+	}
+
+	/**
+	 * create a board whose mines are placed around its center (so both copies of a seed are the same)
+	 * @param width
+	 * @param height
+	 * @param mines
+	 * @param seed
+	 * @return minefield
+	 */
+	private static Minefield createBoard(int width, int height, int mines, long seed) {
+		Minefield minefield = new Minefield(width, height, mines, seed);
+		new MinesGenerator(SafeZone.NEIGHBOURHOOD).generate(minefield, height / 2, width / 2);
+		return minefield;
+	}
+
+	/**
+	 * the old recursive open- open a field, and the fields around it recursively if it is a zero
+	 * @param minefield
+	 * @param row
+	 * @param col
+	 * @return number of opened fields
+	 */
+	private static int clearField(Minefield minefield, int row, int col) {
+		if (row < 0 || row >= minefield.getSize().getHeight() || col < 0 || col >= minefield.getSize().getWidth())
+			return 0;
+
+		Field field = minefield.getField(row, col);
+		if (field.getValue().equals(FieldValue.MINE) || field.getState().equals(FieldState.FLAGGED) || field.getState().equals(FieldState.OPENED))
+			return 0;
+
+		field.setState(FieldState.OPENED);
+		int opened = 1;
+
+		// open fields recursively only if field value is zero
+		if (field.getValue().equals(FieldValue.ZERO)) {
+			for (int dr = -1; dr <= 1; dr++) {
+				for (int dc = -1; dc <= 1; dc++) {
+					opened += clearField(minefield, row + dr, col + dc);
+				}
+			}
+		}
+		return opened;
+	}
+}
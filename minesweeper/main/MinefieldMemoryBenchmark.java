@@ -0,0 +1,112 @@
+package minesweeper.main;
+
+import minesweeper.model.FieldState;
+import minesweeper.model.FieldValue;
+import minesweeper.model.Minefield;
+
+/**
+ *  Minefield Memory Benchmark- the heap used by a board in the packed {@link Minefield} layout (a byte per field)
+ *  and in the old layout (a matrix of field objects, each with its value & state).
+ *  the old layout is rebuilt here as it was, so both can be measured in the same JVM.
+ *  the boards are measured by the heap used before and after they are created (after a few garbage collections),
+ *  with the boards still referenced. small boards are created a few times (FIELDS fields at least), so the
+ *  measured heap is well above the noise of the collections. run it with a large enough heap (-Xmx), 1GB for the defaults.
+ *  usage: MinefieldMemoryBenchmark [size...] (a size is the side of a square board, 100, 500 and 1000 by default)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MinefieldMemoryBenchmark {
+	private static final int[] DEFAULT_SIZES = { 100, 500, 1000 };
+	private static final double MINES_DENSITY = 0.15;
+	private static final int FIELDS = 4000000;	// fields measured together at least
+
+	/**
+	 *  Old Field- a field of the old layout
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class OldField {
+		@SuppressWarnings("unused")
+		private FieldValue _value = FieldValue.ZERO;
+		@SuppressWarnings("unused")
+		private FieldState _state = FieldState.UNFLAGGED;
+	}
+
+	public static void main(String[] args) {
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.println("board          fields     packed MB  bytes/field    objects MB  bytes/field   ratio");
+		for (int size : sizes) {
+			int mines = (int)(size * size * MINES_DENSITY);
+			int copies = Math.max(FIELDS / (size * size), 1);
+
+			long before = usedMemory();
+			Minefield[] minefields = new Minefield[copies];
+			for (int i = 0; i < copies; i++) {
+				minefields[i] = new Minefield(size, size, mines, i);
+			}
+			long packed = (usedMemory() - before) / copies;
+
+			before = usedMemory();
+			OldField[][][] boards = new OldField[copies][][];
+			for (int i = 0; i < copies; i++) {
+				boards[i] = createOldBoard(size, size);
+			}
+			long objects = (usedMemory() - before) / copies;
+
+			double fields = (double)size * size;
+			System.out.println(String.format("%-12s %8d  %10.2f  %11.2f  %12.2f  %11.2f  %6.1fx", size + "x" + size, size * size,
+					packed / 1e6, packed / fields, objects / 1e6, objects / fields, (double)objects / Math.max(packed, 1)));
+
+			// keep the boards alive until they are measured
+			if (minefields[copies - 1].getCellsCount() != boards[copies - 1].length * boards[copies - 1][0].length)
+				throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * create a board of the old layout
+	 * @param width
+	 * @param height
+	 * @return field objects matrix
+	 */
+	private static OldField[][] createOldBoard(int width, int height) {
+		OldField[][] board = new OldField[height][width];
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				board[i][j] = new OldField();
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * get the heap used by reachable objects (after a few garbage collections)
+	 * @return bytes
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+
+		// collect until the used heap stops shrinking
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			long current = runtime.totalMemory() - runtime.freeMemory();
+			if (current >= used)
+				break;
+			used = current;
+		}
+		return used;
+	}
+}
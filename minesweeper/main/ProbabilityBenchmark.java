@@ -0,0 +1,128 @@
+package minesweeper.main;
+
+import java.util.Arrays;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.GameSession;
+import minesweeper.model.GameStatus;
+import minesweeper.model.Level;
+import minesweeper.model.Minefield;
+import minesweeper.model.MinesGenerator;
+import minesweeper.model.SafeZone;
+import minesweeper.model.solver.ProbabilityEngine;
+import minesweeper.model.solver.Solver;
+
+/**
+ *  Probability Benchmark- measures the {@link ProbabilityEngine} on real game positions of the standard levels.
+ *  every game is played by the solver: certainly safe cells are opened first, and when there are none
+ *  the probabilities are computed (timed) and the safest cell is opened.
+ *  each position is computed twice- by the game's engine (reusing the components of the previous moves)
+ *  and by a new engine (enumerating every component).
+ *  usage: ProbabilityBenchmark [games per level]
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ProbabilityBenchmark {
+	private static final int DEFAULT_GAMES = 500;
+	private static final int WARMUP_GAMES = 100;
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+
+		// let the JIT compile the engine before measuring
+		run(Level.expert(), WARMUP_GAMES, false);
+
+		System.out.println("level          positions  engine  p50 ms   p99 ms   max ms   reused");
+		for (Level level : new Level[] { Level.easy(), Level.intermediate(), Level.expert() }) {
+			run(level, games, true);
+		}
+	}
+
+	/**
+	 * play games of a level, and time the probabilities of every position that needs them
+	 * @param level
+	 * @param games number of games
+	 * @param report true to print the results
+	 */
+	private static void run(Level level, int games, boolean report) {
+		long[] warmTimes = new long[16], coldTimes = new long[16];
+		int positions = 0;
+		long hits = 0, misses = 0;
+
+		for (int game = 0; game < games; game++) {
+			Minefield minefield = new Minefield(level.getSize().getWidth(), level.getSize().getHeight(), level.getMines(), game);
+			GameSession session = new GameSession(minefield, new MinesGenerator(SafeZone.NEIGHBOURHOOD));
+			int width = minefield.getSize().getWidth();
+
+			CellChanges changes = session.open(minefield.getSize().getHeight() / 2, width / 2);
+			Solver solver = new Solver(minefield);
+			ProbabilityEngine engine = new ProbabilityEngine(solver, minefield);
+
+			while (session.getStatus() == GameStatus.RUNNING) {
+				int cell = solver.getSafeCell();
+
+				if (cell < 0) {
+					long start = System.nanoTime();
+					engine.compute();
+					long warm = System.nanoTime() - start;
+
+					start = System.nanoTime();
+					new ProbabilityEngine(solver, minefield).compute();
+					long cold = System.nanoTime() - start;
+
+					if (positions == warmTimes.length) {
+						warmTimes = Arrays.copyOf(warmTimes, positions * 2);
+						coldTimes = Arrays.copyOf(coldTimes, positions * 2);
+					}
+					warmTimes[positions] = warm;
+					coldTimes[positions] = cold;
+					positions++;
+
+					cell = engine.getSafestCell();
+					if (cell < 0)
+						break;		// only mines are left
+				}
+
+				changes = session.open(cell / width, cell % width);
+				solver.update(changes);
+			}
+
+			hits += engine.getMemoHits();
+			misses += engine.getMemoMisses();
+		}
+
+		if (report) {
+			String reused = String.format("%5.1f%%", (hits + misses == 0) ? 0 : 100.0 * hits / (hits + misses));
+			print(level.getLevelName(), positions, "reuse", warmTimes, reused);
+			print("", positions, "new", coldTimes, "");
+		}
+	}
+
+	/**
+	 * print a results line
+	 * @param name level name
+	 * @param positions number of timed positions
+	 * @param engine engine kind
+	 * @param times times in nanoseconds (the first positions)
+	 * @param reused components reused
+	 */
+	private static void print(String name, int positions, String engine, long[] times, String reused) {
+		long[] sorted = Arrays.copyOf(times, positions);
+		Arrays.sort(sorted);
+
+		System.out.println(String.format("%-14s %9d  %-6s %7.3f  %7.3f  %7.3f   %s", name, positions, engine,
+				percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1), reused));
+	}
+
+	/**
+	 * get a percentile of sorted times
+	 * @param sorted times in nanoseconds
+	 * @param percentile between 0 and 1
+	 * @return time in milliseconds
+	 */
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		return sorted[Math.max((int)Math.ceil(percentile * sorted.length) - 1, 0)] / 1e6;
+	}
+}
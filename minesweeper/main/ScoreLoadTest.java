@@ -0,0 +1,206 @@
+package minesweeper.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import minesweeper.model.ElapsedTime;
+import minesweeper.model.HighscoreRecord;
+import minesweeper.model.Level;
+import minesweeper.model.HighscoresSource;
+import minesweeper.model.MemoryHighscoresSource;
+import minesweeper.model.store.HighscoresPersistence;
+import minesweeper.server.ScoreClient;
+import minesweeper.server.ScoreServer;
+
+/**
+ *  Score Load Test- many {@link ScoreClient}s submitting records to a {@link ScoreServer} as fast as they can.
+ *  without an address, the server is embedded (on a free local port, with the records in memory),
+ *  and its thread CPU time is reported too- the submissions per CPU second of its single core.
+ *  with "persistent" instead of an address, the embedded server saves the records to {@link HighscoresPersistence} files
+ *  (in a temporary directory, deleted at the end), as the score server app does, and the time until all of them
+ *  are written & forced is reported too, with the journal batches and the compactions.
+ *  every client plays the part of a game instance: its own sender thread, connection and batches.
+ *  usage: ScoreLoadTest records [clients] [host:port | persistent]
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ScoreLoadTest {
+	private static final int DEFAULT_CLIENTS = 8;
+	private static final String PERSISTENT = "persistent";	// the embedded server saves to highscores files
+	private static final String[] PLAYERS = { "Cartman", "Kenny", "Kyle", "Stan", "Butters", "Wendy", "Timmy", "Jimmy" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: ScoreLoadTest records [clients] [host:port | " + PERSISTENT + "]");
+			return;
+		}
+
+		int records = Integer.parseInt(args[0]);
+		int clients = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+
+		ScoreServer server = null;
+		HighscoresPersistence persistence = null;
+		File directory = null;
+		InetSocketAddress address;
+		if (args.length > 2 && !args[2].equals(PERSISTENT)) {
+			address = ScoreClient.parseAddress(args[2]);
+		} else {
+			HighscoresSource source = new MemoryHighscoresSource();
+			if (args.length > 2) {
+				directory = Files.createTempDirectory("ScoreLoadTest").toFile();
+				persistence = new HighscoresPersistence(new File(directory, "ScoreServer.dat"), new File(directory, "ScoreServer.journal"));
+				persistence.start();
+				source = persistence;
+			}
+			server = new ScoreServer(source, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			server.start();
+			address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+		}
+
+		// the records are made before the clock starts
+		final HighscoreRecord[][] submissions = new HighscoreRecord[clients][];
+		for (int client = 0; client < clients; client++) {
+			submissions[client] = createRecords(records / clients + ((client < records % clients) ? 1 : 0), client);
+		}
+
+		System.out.println(String.format("%d records, %d clients, server %s%s", records, clients, address, (persistence != null) ? " (persistent)" : ""));
+		long cpuStart = (server != null) ? server.getCpuTime() : -1;
+		long start = System.nanoTime();
+
+		// every client submits its records from a thread of its own, and is closed (flushed) when done
+		final ScoreClient[] scoreClients = new ScoreClient[clients];
+		Thread[] threads = new Thread[clients];
+		for (int client = 0; client < clients; client++) {
+			final ScoreClient scoreClient = new ScoreClient(address);
+			final HighscoreRecord[] clientRecords = submissions[client];
+			scoreClients[client] = scoreClient;
+			scoreClient.start();
+
+			threads[client] = new Thread("Load Client " + client) {
+				@Override
+				public void run() {
+					for (HighscoreRecord record : clientRecords) {
+						while (!scoreClient.submit(record)) {
+							Thread.yield();	// the buffer is full- wait for the sender
+						}
+					}
+					scoreClient.close();
+				}
+			};
+			threads[client].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		report(scoreClients, server, seconds, cpuStart);
+
+		if (persistence != null) {
+			// until every accepted record is written (the writer forces the journal once per batch)
+			while (persistence.getSavedRecords() < server.getAcceptedRecords()) {
+				Thread.sleep(1);
+			}
+			reportPersistence(persistence, (System.nanoTime() - start) / 1e9);
+		}
+
+		if (server != null) {
+			printTop(new ScoreClient(address), Level.expert().getLevelName());
+			server.close();
+		}
+		if (persistence != null) {
+			persistence.close();
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * create random records
+	 * @param count
+	 * @param seed
+	 * @return records
+	 */
+	private static HighscoreRecord[] createRecords(int count, int seed) {
+		Random random = new Random(seed);
+		Level[] levels = { Level.easy(), Level.intermediate(), Level.expert() };
+		HighscoreRecord[] records = new HighscoreRecord[count];
+
+		for (int i = 0; i < count; i++) {
+			Level level = levels[random.nextInt(levels.length)];
+			long elapsedTime = (5 + random.nextInt(300)) * ElapsedTime.NANOS_PER_SECOND + random.nextInt(1000) * ElapsedTime.NANOS_PER_MILLI;
+			int boardValue = 10 + random.nextInt(level.getMines() * 3);
+			records[i] = new HighscoreRecord(PLAYERS[random.nextInt(PLAYERS.length)], elapsedTime, 0, level, boardValue, boardValue + random.nextInt(boardValue));
+		}
+		return records;
+	}
+
+	/**
+	 * print the load test results
+	 * @param clients
+	 * @param server the embedded server, or null
+	 * @param seconds wall time
+	 * @param cpuStart server thread CPU time at the start, or -1
+	 */
+	private static void report(ScoreClient[] clients, ScoreServer server, double seconds, long cpuStart) {
+		long sent = 0, requests = 0, rejected = 0, failures = 0;
+		for (ScoreClient client : clients) {
+			sent += client.getSentRecords();
+			requests += client.getRequests();
+			rejected += client.getRejectedRecords();
+			failures += client.getFailures();
+		}
+
+		System.out.println(String.format("sent %d records in %.2f s: %.0f records/s", sent, seconds, sent / seconds));
+		System.out.println(String.format("%d requests (%.1f records per batch), %d rejected records, %d failed posts",
+				requests, (requests == 0) ? 0.0 : (double)sent / requests, rejected, failures));
+
+		if (server != null) {
+			long cpuTime = server.getCpuTime();
+			System.out.print(String.format("server: %d records accepted in %d batches (%d retried batches not ingested again)",
+					server.getAcceptedRecords(), server.getBatches(), server.getDuplicateBatches()));
+			if (cpuStart >= 0 && cpuTime > cpuStart) {
+				double cpuSeconds = (cpuTime - cpuStart) / 1e9;
+				System.out.print(String.format(", %.2f CPU s: %.0f records per CPU second", cpuSeconds, server.getAcceptedRecords() / cpuSeconds));
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * print the persistent store results
+	 * @param persistence
+	 * @param seconds wall time until all the accepted records were written
+	 */
+	private static void reportPersistence(HighscoresPersistence persistence, double seconds) {
+		long saved = persistence.getSavedRecords();
+		System.out.println(String.format("persisted %d records in %.2f s: %.0f records/s", saved, seconds, saved / seconds));
+		System.out.println(String.format("%d journal batches (%.1f records per force), %d compactions (%.1f records written per record), %d segments",
+				persistence.getBatches(), (persistence.getBatches() == 0) ? 0.0 : (double)saved / persistence.getBatches(),
+				persistence.getCompactions(), (saved == 0) ? 0.0 : (double)persistence.getCompactedRecords() / saved, persistence.getSegments()));
+	}
+
+	/**
+	 * print the top of a level's leaderboard, as the server serves it
+	 * @param client
+	 * @param level level key
+	 */
+	private static void printTop(ScoreClient client, String level) {
+		try {
+			List<String> lines = client.getLeaderboard(level, 5);
+			System.out.println(level + " top " + lines.size() + ":");
+			for (String line : lines) {
+				System.out.println("  " + line);
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+}
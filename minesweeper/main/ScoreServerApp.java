@@ -0,0 +1,56 @@
+package minesweeper.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import minesweeper.model.HighscoreRecord;
+import minesweeper.model.store.HighscoresPersistence;
+import minesweeper.model.store.RecordVisitor;
+import minesweeper.server.ScoreServer;
+
+/**
+ *  Score Server App- runs a {@link ScoreServer} for the game instances of a site, on its own.
+ *  the collected records are kept in highscores files (a snapshot & a journal, like the game's own highscores).
+ *  the games submit their records to it when they run with -Dminesweeper.scoreServer=host:port.
+ *  usage: ScoreServerApp [port] [bind address]
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ScoreServerApp {
+	private static final int DEFAULT_PORT = 8035;
+	private static final String SNAPSHOT_FILE = "ScoreServer.dat";
+	private static final String JOURNAL_FILE = "ScoreServer.journal";
+
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		String host = (args.length > 1) ? args[1] : "0.0.0.0";
+
+		final HighscoresPersistence persistence = new HighscoresPersistence(new File(SNAPSHOT_FILE), new File(JOURNAL_FILE));
+		final ScoreServer server = new ScoreServer(persistence, new InetSocketAddress(host, port));
+		persistence.load(new RecordVisitor() {
+			@Override
+			public void visit(long sequence, HighscoreRecord record) {
+				server.index(sequence, record);
+			}
+		});
+		persistence.start();
+		server.start();
+
+		// write the collected records on shutdown (ctrl+c)
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				server.close();
+				persistence.close();
+			}
+		});
+
+		System.out.println("score server on " + host + ":" + server.getPort());
+		try {
+			Thread.currentThread().join();	// until the process is stopped
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
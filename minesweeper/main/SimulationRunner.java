@@ -0,0 +1,242 @@
+package minesweeper.main;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import minesweeper.model.Level;
+import minesweeper.model.Minefield;
+import minesweeper.model.MinesGenerator;
+import minesweeper.model.SafeZone;
+import minesweeper.model.solver.SolverBot;
+
+/**
+ *  Simulation Runner- a headless batch of games played by the {@link SolverBot}, for tuning level difficulty.
+ *  the games are split between the cores of a fork-join pool. every task plays its own range of game numbers
+ *  (each game number is a board seed) into its own statistics, which are merged when the tasks join,
+ *  so the threads share nothing while playing.
+ *  for every level the runner reports the win rate, the guesses per game and the clicks per won game,
+ *  and the difficulty in bits: -log2(win rate), how many fair coin flips a perfect player has to win on average.
+ *  usage: SimulationRunner games [threads] level... (a level is easy, intermediate, expert or WIDTHxHEIGHTxMINES)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SimulationRunner {
+	private static final int GAMES_PER_TASK = 64;	// games played by a single task without splitting
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("usage: SimulationRunner games [threads] level...");
+			System.err.println("       level: easy, intermediate, expert or WIDTHxHEIGHTxMINES");
+			return;
+		}
+
+		int games = Integer.parseInt(args[0]);
+		int first = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args[1].matches("\\d+")) {
+			threads = Integer.parseInt(args[1]);
+			first = 2;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		System.out.println(String.format("%d games per level, %d threads", games, threads));
+		System.out.println("level            win rate  difficulty  guesses (mean p50 p90 p99)   clicks to solve (mean p50 p90 p99)   games/s");
+
+		for (int i = first; i < args.length; i++) {
+			Level level = parseLevel(args[i]);
+			long start = System.nanoTime();
+			Statistics statistics = pool.invoke(new SimulationTask(level, 0, games));
+			double seconds = (System.nanoTime() - start) / 1e9;
+			report(args[i], statistics, games / seconds);
+		}
+
+		pool.shutdown();
+	}
+
+	/**
+	 * parse a level argument
+	 * @param name easy, intermediate, expert or WIDTHxHEIGHTxMINES
+	 * @return level
+	 */
+	private static Level parseLevel(String name) {
+		if (name.equalsIgnoreCase("easy"))
+			return Level.easy();
+		if (name.equalsIgnoreCase("intermediate"))
+			return Level.intermediate();
+		if (name.equalsIgnoreCase("expert"))
+			return Level.expert();
+
+		String[] parts = name.toLowerCase().split("x");
+		if (parts.length != 3)
+			throw new IllegalArgumentException("unknown level: " + name);
+		return Level.custom(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+	}
+
+	/**
+	 * print the results of a level
+	 * @param name level name
+	 * @param statistics merged statistics
+	 * @param gamesPerSecond throughput
+	 */
+	private static void report(String name, Statistics statistics, double gamesPerSecond) {
+		double winRate = (double)statistics._wins / statistics._games;
+		double difficulty = (statistics._wins == 0) ? Double.POSITIVE_INFINITY : -Math.log(winRate) / Math.log(2);
+
+		System.out.println(String.format("%-16s %7.2f%%  %10.3f  %7.3f %4d %4d %4d              %8.1f %4d %4d %4d              %9.1f",
+				name, 100 * winRate, difficulty,
+				statistics._guesses.mean(), statistics._guesses.percentile(0.5), statistics._guesses.percentile(0.9), statistics._guesses.percentile(0.99),
+				statistics._clicks.mean(), statistics._clicks.percentile(0.5), statistics._clicks.percentile(0.9), statistics._clicks.percentile(0.99),
+				gamesPerSecond));
+	}
+
+	/**
+	 *  Simulation Task- plays a range of games, splitting it in half while it is large
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class SimulationTask extends RecursiveTask<Statistics> {
+		private static final long serialVersionUID = 4216327425146231593L;
+		private Level _level;
+		private int _from, _to;
+
+		/**
+		 * create a new task
+		 * @param level
+		 * @param from first game number
+		 * @param to last game number (exclusive)
+		 */
+		public SimulationTask(Level level, int from, int to) {
+			_level = level;
+			_from = from;
+			_to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected Statistics compute() {
+			if (_to - _from > GAMES_PER_TASK) {
+				int middle = (_from + _to) >>> 1;
+				SimulationTask left = new SimulationTask(_level, _from, middle);
+				left.fork();
+				Statistics statistics = new SimulationTask(_level, middle, _to).compute();
+				statistics.merge(left.join());
+				return statistics;
+			}
+
+			Statistics statistics = new Statistics();
+			SolverBot bot = new SolverBot();
+			MinesGenerator generator = new MinesGenerator(SafeZone.CELL);
+			int width = _level.getSize().getWidth();
+			int height = _level.getSize().getHeight();
+
+			for (int game = _from; game < _to; game++) {
+				Minefield minefield = new Minefield(width, height, _level.getMines(), game);
+				bot.play(minefield, generator, height / 2, width / 2);
+				statistics.add(bot);
+			}
+
+			return statistics;
+		}
+	}
+
+	/**
+	 *  Statistics- results of a set of games
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Statistics {
+		private int _games, _wins;
+		private Histogram _guesses = new Histogram();	// guesses per game
+		private Histogram _clicks = new Histogram();	// clicks per won game
+
+		/**
+		 * add a played game
+		 * @param bot the bot which played the game
+		 */
+		public void add(SolverBot bot) {
+			_games++;
+			_guesses.add(bot.getGuesses());
+			if (bot.isWon()) {
+				_wins++;
+				_clicks.add(bot.getClicks());
+			}
+		}
+
+		/**
+		 * merge the statistics of other games into this one
+		 * @param other
+		 */
+		public void merge(Statistics other) {
+			_games += other._games;
+			_wins += other._wins;
+			_guesses.merge(other._guesses);
+			_clicks.merge(other._clicks);
+		}
+	}
+
+	/**
+	 *  Histogram- counts of non negative integer values
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Histogram {
+		private long[] _counts = new long[64];
+		private long _total, _sum;
+
+		/**
+		 * add a value
+		 * @param value
+		 */
+		public void add(int value) {
+			if (value >= _counts.length)
+				_counts = Arrays.copyOf(_counts, Math.max(value + 1, _counts.length * 2));
+			_counts[value]++;
+			_total++;
+			_sum += value;
+		}
+
+		/**
+		 * merge the values of another histogram into this one
+		 * @param other
+		 */
+		public void merge(Histogram other) {
+			if (other._counts.length > _counts.length)
+				_counts = Arrays.copyOf(_counts, other._counts.length);
+			for (int value = 0; value < other._counts.length; value++) {
+				_counts[value] += other._counts[value];
+			}
+			_total += other._total;
+			_sum += other._sum;
+		}
+
+		/**
+		 * get the mean value
+		 * @return mean, or 0 if there are no values
+		 */
+		public double mean() {
+			return (_total == 0) ? 0 : (double)_sum / _total;
+		}
+
+		/**
+		 * get a percentile value
+		 * @param percentile between 0 and 1
+		 * @return the lowest value which at least this part of the values are not above, or 0 if there are no values
+		 */
+		public int percentile(double percentile) {
+			long rank = (long)Math.ceil(percentile * _total);
+			long count = 0;
+
+			for (int value = 0; value < _counts.length; value++) {
+				count += _counts[value];
+				if (count >= rank && count > 0)
+					return value;
+			}
+
+			return 0;
+		}
+	}
+}
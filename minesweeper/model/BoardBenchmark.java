@@ -0,0 +1,99 @@
+package minesweeper.model;
+
+/**
+ *  Board Benchmark- computes the 3BV (Bechtel's Board Benchmark Value) of a {@link Minefield}:
+ *  the minimum number of left clicks needed to clear the board, without flags and without chords.
+ *  every opening (a connected area of zero fields) takes one click, and every number field which is not on
+ *  the border of an opening takes one click of its own.
+ *  the board is scanned once- each zero field is marked by the opening's fill, and each number field checks its neighbours.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class BoardBenchmark {
+
+	/**
+	 * compute the 3BV of a generated board (the mines are placed, the fields states are ignored)
+	 * @param minefield
+	 * @return 3BV
+	 */
+	public static int get3BV(Minefield minefield) {
+		int width = minefield.getSize().getWidth();
+		int height = minefield.getSize().getHeight();
+		int cells = minefield.getCellsCount();
+		boolean[] marked = new boolean[cells];	// zero fields already in a counted opening
+		int[] stack = new int[cells];			// opening fill stack (each zero field is pushed at most once)
+		int value = 0;
+
+		for (int index = 0; index < cells; index++) {
+			int cellValue = minefield.getCellValue(index);
+
+			if (cellValue == 0) {
+				if (!marked[index]) {
+					value++;	// a new opening
+					markOpening(minefield, index, marked, stack);
+				}
+			} else if (cellValue != Minefield.MINE && !hasZeroNeighbour(minefield, index / width, index % width, width, height)) {
+				value++;	// a number field which no opening reveals
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * mark all the zero fields of an opening
+	 * @param minefield
+	 * @param first a zero field of the opening
+	 * @param marked marked zero fields
+	 * @param stack fill stack
+	 */
+	private static void markOpening(Minefield minefield, int first, boolean[] marked, int[] stack) {
+		int width = minefield.getSize().getWidth();
+		int height = minefield.getSize().getHeight();
+		int top = 0;
+
+		marked[first] = true;
+		stack[top++] = first;
+
+		while (top > 0) {
+			int index = stack[--top];
+			int r = index / width;
+			int c = index - r * width;
+			int fromRow = Math.max(r - 1, 0), toRow = Math.min(r + 1, height - 1);
+			int fromCol = Math.max(c - 1, 0), toCol = Math.min(c + 1, width - 1);
+
+			for (int nr = fromRow; nr <= toRow; nr++) {
+				for (int nc = fromCol; nc <= toCol; nc++) {
+					int neighbour = nr * width + nc;
+					if (!marked[neighbour] && minefield.getCellValue(neighbour) == 0) {
+						marked[neighbour] = true;
+						stack[top++] = neighbour;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * check if a field is on the border of an opening
+	 * @param minefield
+	 * @param row
+	 * @param col
+	 * @param width board width
+	 * @param height board height
+	 * @return true if one of the fields around it is zero
+	 */
+	private static boolean hasZeroNeighbour(Minefield minefield, int row, int col, int width, int height) {
+		int fromRow = Math.max(row - 1, 0), toRow = Math.min(row + 1, height - 1);
+		int fromCol = Math.max(col - 1, 0), toCol = Math.min(col + 1, width - 1);
+
+		for (int r = fromRow; r <= toRow; r++) {
+			for (int c = fromCol; c <= toCol; c++) {
+				if (minefield.getCellValue(r * width + c) == 0)
+					return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,19 @@
+package minesweeper.model;
+
+/**
+ *  Board Generator- fills a new {@link Minefield} with mines after the first click.
+ *  implementations must be deterministic: the same minefield seed and the same first click
+ *  always produce the same board.
+ *  @see Minefield#getSeed()
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface BoardGenerator {
+	/**
+	 * place the minefield's mines and compute the field numbers
+	 * @param minefield an empty minefield
+	 * @param row first click row
+	 * @param col first click column
+	 */
+	void generate(Minefield minefield, int row, int col);
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package minesweeper.model;
+
+/**
+ *  Cell Changes- a compact list of the cells changed by a single move.
+ *  holds cell indexes (row * width + col) in one preallocated array, so recording a move never allocates.
+ *  a list is reused by its {@link GameSession}, and is valid only until the next move.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class CellChanges {
+	private int[] _cells;
+	private int _size;
+	private int _width;
+
+	/**
+	 * create a new changes list for a given board
+	 * @param minefield the board (every cell can change at most once per move)
+	 */
+	public CellChanges(Minefield minefield) {
+		_cells = new int[minefield.getCellsCount()];
+		_width = minefield.getSize().getWidth();
+	}
+
+	/**
+	 * remove all the changes
+	 */
+	public void clear() {
+		_size = 0;
+	}
+
+	/**
+	 * add a changed cell
+	 * @param index cell index
+	 */
+	public void add(int index) {
+		_cells[_size++] = index;
+	}
+
+	/**
+	 * get number of changed cells
+	 * @return changed cells
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * get a changed cell index
+	 * @param i change number, between 0 and size()
+	 * @return cell index (row * width + col)
+	 */
+	public int get(int i) {
+		return _cells[i];
+	}
+
+	/**
+	 * get a changed cell row
+	 * @param i change number, between 0 and size()
+	 * @return cell row
+	 */
+	public int getRow(int i) {
+		return _cells[i] / _width;
+	}
+
+	/**
+	 * get a changed cell column
+	 * @param i change number, between 0 and size()
+	 * @return cell column
+	 */
+	public int getCol(int i) {
+		return _cells[i] % _width;
+	}
+}
\ No newline at end of file
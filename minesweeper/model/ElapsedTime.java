@@ -0,0 +1,31 @@
+package minesweeper.model;
+
+/**
+ *  Elapsed Time- formats game durations, which are kept as nanoseconds (see {@link HighscoreRecord}).
+ *  hours are not wrapped, so a very long game still shows its whole time.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ElapsedTime {
+	public static final long NANOS_PER_MILLI = 1000000L;
+	public static final long NANOS_PER_SECOND = 1000000000L;
+
+	/**
+	 * format a duration as hh:mm:ss
+	 * @param nanos duration in nanoseconds
+	 * @return formatted time
+	 */
+	public static String format(long nanos) {
+		long seconds = nanos / NANOS_PER_SECOND;
+		return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
+	/**
+	 * format a duration as hh:mm:ss.mmm
+	 * @param nanos duration in nanoseconds
+	 * @return formatted time, with milliseconds
+	 */
+	public static String formatMillis(long nanos) {
+		return format(nanos) + String.format(".%03d", (nanos / NANOS_PER_MILLI) % 1000);
+	}
+}
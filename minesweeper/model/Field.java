@@ -1,54 +1,106 @@
 package minesweeper.model;
 
 /**
- *  Field Model- represent a cell which can contains zero, number or a mine
+ *  Field Model- represent a cell which can contains zero, number or a mine.
+ *  The field is a lightweight view over a single packed cell of the {@link Minefield} board,
+ *  so it holds no data of its own- only the board and the cell index.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class Field {
-	private FieldValue _value;
-	private FieldState _state;
-	
+	private static final FieldValue[] VALUES = FieldValue.values();	// cached, values() clones the array on every call
+
+	private Minefield _minefield;
+	private int _index;
+
 	/**
-	 * create a field
+	 * create a field view for a given cell of the minefield
+	 * @param minefield the board which holds the field data
+	 * @param index cell index in the board (row * width + col)
 	 */
-	public Field() {
-		_value = FieldValue.ZERO;
-		_state = FieldState.UNFLAGGED;
+	Field(Minefield minefield, int index) {
+		_minefield = minefield;
+		_index = index;
 	}
-	
+
 	/**
 	 * get field state
 	 * @see FieldState
 	 * @return field state
 	 */
 	public FieldState getState() {
-		return _state;
+		switch (_minefield.getCellState(_index)) {
+		case Minefield.STATE_OPENED:
+			return FieldState.OPENED;
+		case Minefield.STATE_FLAGGED:
+			return FieldState.FLAGGED;
+		default:
+			return FieldState.UNFLAGGED;
+		}
 	}
-	
+
 	/**
 	 * set field state
 	 * @see FieldState
 	 * @param state field state
 	 */
 	public void setState(FieldState state) {
-		_state = state;
+		switch (state) {
+		case OPENED:
+			_minefield.setCellState(_index, Minefield.STATE_OPENED);
+			break;
+		case FLAGGED:
+			_minefield.setCellState(_index, Minefield.STATE_FLAGGED);
+			break;
+		default:
+			_minefield.setCellState(_index, Minefield.STATE_UNFLAGGED);
+		}
 	}
-	
+
 	/**
 	 * get field value
 	 * @see FieldValue
 	 */
 	public FieldValue getValue() {
-		return _value;
+		return VALUES[_minefield.getCellValue(_index)];
 	}
-	
+
 	/**
 	 * set field value
 	 * @see FieldValue
 	 * @param value
 	 */
 	public void setValue(FieldValue value) {
-		_value = value;
+		_minefield.setCellValue(_index, value.ordinal());
+	}
+
+	/**
+	 * get the cell index of this field in the board
+	 * @return cell index (row * width + col)
+	 */
+	public int getIndex() {
+		return _index;
+	}
+
+	/**
+	 * two fields are equal if they are views of the same cell in the same board
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Field))
+			return false;
+
+		Field other = (Field)obj;
+		return _minefield == other._minefield && _index == other._index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(_minefield) + _index;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package minesweeper.model;
+
+/**
+ *  Flood Fill- opens an empty area of the {@link Minefield} iteratively.
+ *  the opened cells are appended to a {@link CellChanges} list, which is also used as the fill queue
+ *  (each cell is queued at most once), so a fill never allocates and never overflows the stack, even on very large boards.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class FloodFill {
+	private Minefield _minefield;
+
+	/**
+	 * create a new flood fill for a given minefield
+	 * @param minefield
+	 */
+	public FloodFill(Minefield minefield) {
+		_minefield = minefield;
+	}
+
+	/**
+	 * open the field at the given row & column, and all the fields around it recursively while the opened value is zero.
+	 * mines, flagged and already opened fields are never opened.
+	 * @param row field row
+	 * @param col field column
+	 * @param changes list to append the opened fields to
+	 * @return number of opened fields
+	 */
+	public int fill(int row, int col, CellChanges changes) {
+		int width = _minefield.getSize().getWidth();
+		int height = _minefield.getSize().getHeight();
+
+		if (row < 0 || row >= height || col < 0 || col >= width)
+			return 0;
+
+		int first = changes.size();
+		int head = first;
+		open(_minefield.getIndex(row, col), changes);
+
+		while (head < changes.size()) {
+			int index = changes.get(head++);
+
+			// continue only from zero fields
+			if (_minefield.getCellValue(index) != 0)
+				continue;
+
+			int r = index / width;
+			int c = index - r * width;
+			int fromRow = Math.max(r - 1, 0), toRow = Math.min(r + 1, height - 1);
+			int fromCol = Math.max(c - 1, 0), toCol = Math.min(c + 1, width - 1);
+
+			for (int nr = fromRow; nr <= toRow; nr++) {
+				int rowOffset = nr * width;
+				for (int nc = fromCol; nc <= toCol; nc++) {
+					open(rowOffset + nc, changes);
+				}
+			}
+		}
+
+		return changes.size() - first;
+	}
+
+	/**
+	 * open a single cell and queue it, if it is not a mine, not flagged and not opened yet
+	 * @param index cell index
+	 * @param changes fill queue
+	 */
+	private void open(int index, CellChanges changes) {
+		if (_minefield.getCellState(index) == Minefield.STATE_UNFLAGGED && !_minefield.isMine(index)) {
+			_minefield.setCellState(index, Minefield.STATE_OPENED);
+			changes.add(index);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package minesweeper.model;
+
+/**
+ *  Game Session- the game rules for a single {@link Minefield}, without any view.
+ *  each move (open, flag or chord) updates the model and returns the cells it changed,
+ *  so the session can run headless (simulations, servers) or behind the Swing views.
+ *  the mines are placed by the {@link BoardGenerator} on the first open.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class GameSession {
+	private Minefield _minefield;
+	private BoardGenerator _boardGenerator;
+	private FloodFill _floodFill;
+	private CellChanges _changes;		// changes of the last move (reused)
+	private GameStatus _status = GameStatus.NEW;
+	private int _explodedCell = -1;		// the mine that lost the game
+	private int _clicks;				// moves made while the game was not over (including moves that changed nothing)
+
+	/**
+	 * create a new game session
+	 * @param minefield an empty minefield
+	 * @param boardGenerator places the mines on the first open
+	 */
+	public GameSession(Minefield minefield, BoardGenerator boardGenerator) {
+		_minefield = minefield;
+		_boardGenerator = boardGenerator;
+		_floodFill = new FloodFill(minefield);
+		_changes = new CellChanges(minefield);
+	}
+
+	/**
+	 * get the session minefield
+	 * @return minefield model
+	 */
+	public Minefield getMinefield() {
+		return _minefield;
+	}
+
+	/**
+	 * get the game status
+	 * @see GameStatus
+	 * @return game status
+	 */
+	public GameStatus getStatus() {
+		return _status;
+	}
+
+	/**
+	 * get the mine that lost the game
+	 * @return cell index, or -1 if the game was not lost
+	 */
+	public int getExplodedCell() {
+		return _explodedCell;
+	}
+
+	/**
+	 * get the number of moves (opens, flags and chords) made before the game was over,
+	 * including the moves that changed nothing (for the player's efficiency)
+	 * @return clicks
+	 */
+	public int getClicks() {
+		return _clicks;
+	}
+
+	/**
+	 * open a field. the first open places the mines and starts the game.
+	 * opening a zero opens the fields around it recursively, and opening a mine loses the game
+	 * (then all the fields are opened and reported as changed).
+	 * @param row
+	 * @param col
+	 * @return changed cells (valid until the next move)
+	 */
+	public CellChanges open(int row, int col) {
+		_changes.clear();
+		countClick();
+
+		if (_status == GameStatus.NEW) {
+			_boardGenerator.generate(_minefield, row, col);
+			_minefield.recountCorrectFlags();	// the flags placed before the mines were counted as wrong
+			_status = GameStatus.RUNNING;
+		}
+
+		if (_status == GameStatus.RUNNING)
+			openField(row, col);
+
+		return _changes;
+	}
+
+	/**
+	 * flag an unflagged field (if there are flags left), or remove the flag of a flagged field.
+	 * the game is won when all the mines are flagged.
+	 * @param row
+	 * @param col
+	 * @return changed cells (valid until the next move)
+	 */
+	public CellChanges flag(int row, int col) {
+		_changes.clear();
+		countClick();
+
+		if (_status == GameStatus.WON || _status == GameStatus.LOST)
+			return _changes;
+
+		int index = _minefield.getIndex(row, col);
+		int state = _minefield.getCellState(index);
+
+		if (state == Minefield.STATE_UNFLAGGED && _minefield.getFlags() > 0) {
+			_minefield.setCellState(index, Minefield.STATE_FLAGGED);
+			_minefield.decrementFlags();
+			if (_minefield.isMine(index))
+				_minefield.incrementCorrectFlags();
+			_changes.add(index);
+		} else if (state == Minefield.STATE_FLAGGED) {
+			_minefield.setCellState(index, Minefield.STATE_UNFLAGGED);
+			_minefield.incrementFlags();
+			if (_minefield.isMine(index))
+				_minefield.decrementCorrectFlags();
+			_changes.add(index);
+		}
+
+		if (_minefield.finishGame())
+			_status = GameStatus.WON;
+
+		return _changes;
+	}
+
+	/**
+	 * open all the fields around an opened number field.
+	 * if the field shows a number k, and k fields around it are flagged, the rest fields around it are opened.
+	 * this may lose the game if a flag was wrong. if there are fewer flags, nothing is opened.
+	 * @param row
+	 * @param col
+	 * @return changed cells (valid until the next move)
+	 */
+	public CellChanges chord(int row, int col) {
+		_changes.clear();
+		countClick();
+
+		int index = _minefield.getIndex(row, col);
+		int value = _minefield.getCellValue(index);
+
+		// only for a running game, and an opened number field
+		if (_status != GameStatus.RUNNING || _minefield.getCellState(index) != Minefield.STATE_OPENED || value == 0 || value == Minefield.MINE)
+			return _changes;
+
+		int width = _minefield.getSize().getWidth();
+		int height = _minefield.getSize().getHeight();
+		int fromRow = Math.max(row - 1, 0), toRow = Math.min(row + 1, height - 1);
+		int fromCol = Math.max(col - 1, 0), toCol = Math.min(col + 1, width - 1);
+
+		// count the flags around the field
+		int flags = 0;
+		for (int r = fromRow; r <= toRow; r++) {
+			for (int c = fromCol; c <= toCol; c++) {
+				if (_minefield.getCellState(r * width + c) == Minefield.STATE_FLAGGED)
+					flags++;
+			}
+		}
+
+		if (flags >= value) {
+			for (int r = fromRow; r <= toRow && _status == GameStatus.RUNNING; r++) {
+				for (int c = fromCol; c <= toCol && _status == GameStatus.RUNNING; c++) {
+					openField(r, c);
+				}
+			}
+		}
+
+		return _changes;
+	}
+
+	/**
+	 * count a move, if the game is not over
+	 */
+	private void countClick() {
+		if (_status == GameStatus.NEW || _status == GameStatus.RUNNING)
+			_clicks++;
+	}
+
+	/**
+	 * open a single field (not flagged and not opened yet), or lose the game if it is a mine
+	 * @param row
+	 * @param col
+	 */
+	private void openField(int row, int col) {
+		int index = _minefield.getIndex(row, col);
+
+		if (_minefield.getCellState(index) != Minefield.STATE_UNFLAGGED)
+			return;
+
+		if (_minefield.isMine(index)) {
+			lose(index);
+		} else {
+			_floodFill.fill(row, col, _changes);
+		}
+	}
+
+	/**
+	 * lose the game- open all the unflagged fields, and report all the fields as changed
+	 * @param index the mine that was opened
+	 */
+	private void lose(int index) {
+		_status = GameStatus.LOST;
+		_explodedCell = index;
+		_changes.clear();
+
+		for (int i = 0; i < _minefield.getCellsCount(); i++) {
+			if (_minefield.getCellState(i) == Minefield.STATE_UNFLAGGED)
+				_minefield.setCellState(i, Minefield.STATE_OPENED);
+			_changes.add(i);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package minesweeper.model;
+
+/**
+ *  Game Status- new (no mines yet), running, won or lost
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public enum GameStatus {
+	NEW,
+	RUNNING,
+	WON,
+	LOST,
+}
\ No newline at end of file
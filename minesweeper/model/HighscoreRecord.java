@@ -3,42 +3,102 @@ package minesweeper.model;
 import java.io.Serializable;
 
 /**
- *  Highscore record- contains player name, level name, time and difficulty factor.
- *  The difficulty factor is the ratio between the mines count and the board size,
- *  and the highscores is ordered by this field.
+ *  Highscore record- contains player name, level name, time, and the finished board's benchmark:
+ *  its 3BV (the minimum clicks needed to clear it, see {@link BoardBenchmark}) and the clicks the player made.
+ *  the highscores is ordered by the score- 3BV per second, which measures the player's speed on the board itself,
+ *  so lucky boards and custom levels of any structure are compared by the same difficulty adjusted value.
+ *  records saved before the benchmark was stored have no 3BV, and are ordered after all the others.
+ *  the times are kept as nanoseconds, so the records are compared numerically and shown with milliseconds.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class HighscoreRecord implements Comparable<HighscoreRecord>, Serializable {
-	
+
+	// the records are not serialized anymore (see HighscoreRecordCodec)- the class is still Serializable, and keeps
+	// the old _time field, only so LegacyHighscoresMigrator can read the serialized records list of old versions
 	private static final long serialVersionUID = 1285629130672686246L;
-	private String _time;
+	private String _time;		// formatted time (only records saved before the times were kept as numbers)
 	private String _playerName;
 	private String _levelName;
-	private double _difficultyFactor;
-	
+	private int _width, _height, _mines;	// level board (0 for records saved before it was kept)
+	private long _elapsedTime;	// nanoseconds
+	private long _pausedTime;	// nanoseconds
+	private int _boardValue;	// 3BV
+	private int _clicks;
+
 	/**
 	 * create a new record
 	 * @param playerName
-	 * @param time
+	 * @param elapsedTime total time in nanoseconds (without the pauses)
+	 * @param pausedTime total pauses time in nanoseconds
 	 * @param level
+	 * @param boardValue 3BV of the finished board
+	 * @param clicks clicks the player made
 	 * @see Level
+	 * @see BoardBenchmark
 	 */
-	public HighscoreRecord(String playerName, String time, Level level) {
-		_time = time;
+	public HighscoreRecord(String playerName, long elapsedTime, long pausedTime, Level level, int boardValue, int clicks) {
 		_playerName = playerName;
 		_levelName = level.getLevelName();
-		_difficultyFactor = (double)level.getMines() / (double)(level.getSize().getHeight() * level.getSize().getWidth());
+		_width = level.getSize().getWidth();
+		_height = level.getSize().getHeight();
+		_mines = level.getMines();
+		_elapsedTime = elapsedTime;
+		_pausedTime = pausedTime;
+		_boardValue = boardValue;
+		_clicks = clicks;
+	}
+
+	/**
+	 * create a record for a given level name and board (a record read back from the disk)
+	 * @param playerName
+	 * @param levelName
+	 * @param width board width (0 if unknown)
+	 * @param height board height (0 if unknown)
+	 * @param mines total mines (0 if unknown)
+	 * @param elapsedTime total time in nanoseconds (without the pauses)
+	 * @param pausedTime total pauses time in nanoseconds
+	 * @param boardValue 3BV of the finished board
+	 * @param clicks clicks the player made
+	 */
+	public HighscoreRecord(String playerName, String levelName, int width, int height, int mines, long elapsedTime, long pausedTime, int boardValue, int clicks) {
+		_playerName = playerName;
+		_levelName = levelName;
+		_width = width;
+		_height = height;
+		_mines = mines;
+		_elapsedTime = elapsedTime;
+		_pausedTime = pausedTime;
+		_boardValue = boardValue;
+		_clicks = clicks;
 	}
-	
+
 	/**
-	 * get total time
-	 * @return total time
+	 * get total time, with milliseconds
+	 * @return formatted total time
 	 */
 	public String getTime() {
-		return _time;
+		if (_elapsedTime == 0 && _time != null)
+			return _time;
+		return ElapsedTime.formatMillis(_elapsedTime);
 	}
-	
+
+	/**
+	 * get total time in nanoseconds (without the pauses)
+	 * @return elapsed time
+	 */
+	public long getElapsedTime() {
+		return _elapsedTime;
+	}
+
+	/**
+	 * get total pauses time in nanoseconds
+	 * @return paused time
+	 */
+	public long getPausedTime() {
+		return _pausedTime;
+	}
+
 	/**
 	 * get player name
 	 * @return player name
@@ -46,7 +106,7 @@ public class HighscoreRecord implements Comparable<HighscoreRecord>, Serializabl
 	public String getPlayerName() {
 		return _playerName;
 	}
-	
+
 	/**
 	 * get level name
 	 * @return level name
@@ -54,19 +114,84 @@ public class HighscoreRecord implements Comparable<HighscoreRecord>, Serializabl
 	public String getLevelName() {
 		return _levelName;
 	}
-	
+
+	/**
+	 * get the level board width
+	 * @return width, or 0 if unknown
+	 */
+	public int getWidth() {
+		return _width;
+	}
+
+	/**
+	 * get the level board height
+	 * @return height, or 0 if unknown
+	 */
+	public int getHeight() {
+		return _height;
+	}
+
+	/**
+	 * get the level total mines
+	 * @return mines, or 0 if unknown
+	 */
+	public int getMines() {
+		return _mines;
+	}
+
+	/**
+	 * get the leaderboard key of the record's level- the level name, and the board of a custom level
+	 * @return level key
+	 */
+	public String getLevelKey() {
+		if (Level.CUSTOM_NAME.equals(_levelName) && _width > 0)
+			return _levelName + " " + _width + "x" + _height + "x" + _mines;
+		return _levelName;
+	}
+
+	/**
+	 * get the 3BV of the board
+	 * @return 3BV, or 0 for an old record
+	 */
+	public int getBoardValue() {
+		return _boardValue;
+	}
+
 	/**
-	 * compare records by difficulty factor and by time (for a two equal factors)
+	 * get the clicks the player made
+	 * @return clicks
+	 */
+	public int getClicks() {
+		return _clicks;
+	}
+
+	/**
+	 * get the player's efficiency- the ratio between the 3BV and the clicks made
+	 * @return efficiency (1 is a perfect game without flags), or 0 if unknown
+	 */
+	public double getEfficiency() {
+		return (_clicks == 0) ? 0 : (double)_boardValue / _clicks;
+	}
+
+	/**
+	 * get the record score- 3BV per second
+	 * @return score, or 0 if unknown
+	 */
+	public double getScore() {
+		return (_elapsedTime == 0) ? 0 : _boardValue * (double)ElapsedTime.NANOS_PER_SECOND / _elapsedTime;
+	}
+
+	/**
+	 * compare records by score (higher first), then by efficiency (higher first), then by time (shorter first)
 	 * @see java.lang.Comparable#compareTo(java.lang.Object)
 	 */
 	@Override
 	public int compareTo(HighscoreRecord o) {
-		if (_difficultyFactor < o._difficultyFactor) {
-			return -1;
-		} else if (_difficultyFactor == o._difficultyFactor) {
-			return _time.compareTo(o.getTime());
-		} else {
-			return 1;
-		}
-	}
-}
\ No newline at end of file
+		int result = Double.compare(o.getScore(), getScore());
+		if (result == 0)
+			result = Double.compare(o.getEfficiency(), getEfficiency());
+		if (result == 0)
+			result = Long.compare(_elapsedTime, o._elapsedTime);
+		return result;
+	}
+}
@@ -1,68 +1,196 @@
 package minesweeper.model;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.table.AbstractTableModel;
 
 /**
  *  Highscores table data model
  *  it extends {@link AbstractTableModel} so the JTable can show the data simply.
+ *  the whole history is indexed, in a {@link Leaderboard} per level (each custom board is a level of its own),
+ *  but the records themselves stay in their {@link HighscoresSource}: the table reads them a page (a window of rows)
+ *  at a time, as it is scrolled, and keeps the last MAX_PAGES pages it used.
+ *  the table shows all the records of the selected level, or the best record of every player,
+ *  sorted by rank, time or player name.
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class Highscores extends AbstractTableModel {
 
 	private static final long serialVersionUID = 5482408105017180966L;
-	public final static int RECORDS = 10;
-	private List<HighscoreRecord> _records;
-	private final String[] _columns = { "Player Name", "Level", "Time" };
-	
+	public final static int PAGE_SIZE = 64;	// rows read together
+	public final static int MAX_PAGES = 16;	// pages kept in memory
+	private HighscoresSource _source;
+	private Map<String, Leaderboard> _leaderboards = new LinkedHashMap<String, Leaderboard>();
+	private String _level;					// the selected level key
+	private boolean _personalBests;			// show the best record of every player
+	private int _order = Leaderboard.ORDER_RANK;
+	private Map<Integer, HighscoreRecord[]> _pages = new LinkedHashMap<Integer, HighscoreRecord[]>(MAX_PAGES, 0.75f, true) {
+		private static final long serialVersionUID = -1652734082510468373L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, HighscoreRecord[]> eldest) {
+			return size() > MAX_PAGES;	// the least recently used page
+		}
+	};
+	private final String[] _columns = { "#", "Player Name", "Time", "3BV/s" };
+	private final int[] _columnsOrders = { Leaderboard.ORDER_RANK, Leaderboard.ORDER_PLAYER, Leaderboard.ORDER_TIME, Leaderboard.ORDER_RANK };
+
+	// statistics
+	private long _pageHits;
+	private long _pageMisses;
+
 	/**
-	 * create a new highscores table
+	 * create a new highscores table, whose records are kept in memory only
 	 */
 	public Highscores() {
-		_records = new ArrayList<HighscoreRecord>();
+		this(new MemoryHighscoresSource());
 	}
-	
+
 	/**
-	 * create a new highscores table for a given list of records (when we load the highscores from the disk)
-	 * @param records
+	 * create a new highscores table for a records source (its saved records are indexed by {@link #index})
+	 * @param source
 	 */
-	public Highscores(List<HighscoreRecord> records) {
-		_records = records;
+	public Highscores(HighscoresSource source) {
+		_source = source;
+
+		// the regular levels are listed first, even before they have records
+		_level = Level.easy().getLevelName();
+		getLeaderboard(_level);
+		getLeaderboard(Level.intermediate().getLevelName());
+		getLeaderboard(Level.expert().getLevelName());
 	}
-	
+
 	/**
-	 * get the table records
-	 * @see HighscoreRecord
-	 * @return table records
+	 * get a level's leaderboard (created if the level has no records yet)
+	 * @param level level key
+	 * @see HighscoreRecord#getLevelKey()
+	 * @return leaderboard
+	 */
+	public Leaderboard getLeaderboard(String level) {
+		Leaderboard leaderboard = _leaderboards.get(level);
+		if (leaderboard == null) {
+			leaderboard = new Leaderboard(level);
+			_leaderboards.put(level, leaderboard);
+		}
+		return leaderboard;
+	}
+
+	/**
+	 * get the levels keys, in the order they were first seen (the regular levels first)
+	 * @return levels keys
+	 */
+	public List<String> getLevels() {
+		return new ArrayList<String>(_leaderboards.keySet());
+	}
+
+	/**
+	 * get the selected level
+	 * @return level key
+	 */
+	public String getLevel() {
+		return _level;
+	}
+
+	/**
+	 * select the level shown in the table
+	 * @param level level key
+	 */
+	public void setLevel(String level) {
+		getLeaderboard(level);
+		_level = level;
+		_pages.clear();
+		fireTableDataChanged();
+	}
+
+	/**
+	 * check if the table shows the personal bests
+	 * @return true for the best record of every player, false for all the records
+	 */
+	public boolean isPersonalBests() {
+		return _personalBests;
+	}
+
+	/**
+	 * show the personal bests or all the records
+	 * @param personalBests true for the best record of every player, false for all the records
+	 */
+	public void setPersonalBests(boolean personalBests) {
+		_personalBests = personalBests;
+		_pages.clear();
+		fireTableDataChanged();
+	}
+
+	/**
+	 * sort the table by a column (the rank and 3BV/s columns sort by rank)
+	 * @param column
 	 */
-	public List<HighscoreRecord> getRecords() {
-		return _records;
+	public void sortBy(int column) {
+		_order = _columnsOrders[column];
+		_pages.clear();
+		fireTableDataChanged();
 	}
-	
+
 	/**
-	 * add a record to the highscores table
+	 * save a new record to the source, and add it to its level's leaderboard
 	 * @see HighscoreRecord
 	 * @param record
 	 */
 	public void addRecord(HighscoreRecord record) {
-		_records.add(record);
-		Collections.sort(_records);
-		
-		// if the table contains more then RECORDS elements
-		if (_records.size() > RECORDS) {
-			_records.removeAll(_records.subList(RECORDS, _records.size()));
-		}
+		index(_source.save(record), record);
+		_pages.clear();
+		fireTableDataChanged();
+	}
+
+	/**
+	 * add a saved record to its level's leaderboard (when the highscores are loaded from the source)
+	 * @param sequence the record's sequence number in the source
+	 * @param record
+	 */
+	public void index(long sequence, HighscoreRecord record) {
+		getLeaderboard(record.getLevelKey()).add(sequence, record);
 	}
-	
+
 	/**
-	 * sort the table using Collections.sort method
+	 * get the leaderboard entry shown in a table row
+	 * @param rowIndex
+	 * @return entry
 	 */
-	public void sort() {
-		Collections.sort(_records);
+	private int getEntryAt(int rowIndex) {
+		Leaderboard leaderboard = _leaderboards.get(_level);
+		if (_personalBests)
+			return leaderboard.getPersonalBests(_order)[rowIndex];
+		if (_order == Leaderboard.ORDER_RANK)
+			return leaderboard.getEntry(rowIndex);	// no need to sort
+		return leaderboard.getOrder(_order)[rowIndex];
+	}
+
+	/**
+	 * get the record shown in a table row (its page is read from the source if it is not in memory)
+	 * @param rowIndex
+	 * @return record, or null if it can't be read
+	 */
+	public HighscoreRecord getRecordAt(int rowIndex) {
+		int page = rowIndex / PAGE_SIZE;
+		HighscoreRecord[] records = _pages.get(page);
+
+		if (records == null) {
+			_pageMisses++;
+			Leaderboard leaderboard = _leaderboards.get(_level);
+			int first = page * PAGE_SIZE;
+			records = new HighscoreRecord[Math.min(PAGE_SIZE, getRowCount() - first)];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = _source.read(leaderboard.getSequence(getEntryAt(first + i)));
+			}
+			_pages.put(page, records);
+		} else {
+			_pageHits++;
+		}
+
+		return records[rowIndex % PAGE_SIZE];
 	}
 
 	/*
@@ -71,7 +199,8 @@ public class Highscores extends AbstractTableModel {
 	 */
 	@Override
 	public int getRowCount() {
-		return _records.size();
+		Leaderboard leaderboard = _leaderboards.get(_level);
+		return _personalBests ? leaderboard.getPlayers() : leaderboard.size();
 	}
 
 	/*
@@ -89,18 +218,32 @@ public class Highscores extends AbstractTableModel {
 	 */
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
+		Leaderboard leaderboard = _leaderboards.get(_level);
+
+		// the rank & name are in the leaderboard- the record is read only for the other columns
 		switch (columnIndex) {
 		case 0:
-			return _records.get(rowIndex).getPlayerName();
+			if (!_personalBests && _order == Leaderboard.ORDER_RANK)
+				return rowIndex + 1;
+			return leaderboard.getRank(getEntryAt(rowIndex));
 		case 1:
-			return _records.get(rowIndex).getLevelName();
+			return leaderboard.getPlayerName(getEntryAt(rowIndex));
+		}
+
+		HighscoreRecord record = getRecordAt(rowIndex);
+		if (record == null)
+			return "?";	// damaged
+
+		switch (columnIndex) {
 		case 2:
-			return _records.get(rowIndex).getTime();
+			return record.getTime();
+		case 3:
+			return String.format("%.2f", record.getScore());
 		default:
 			return null;
 		}
 	}
-	
+
 	/*
 	 * (non-Javadoc)
 	 * @see javax.swing.table.AbstractTableModel#getColumnName(int)
@@ -109,4 +252,20 @@ public class Highscores extends AbstractTableModel {
 	public String getColumnName(int column) {
 		return _columns[column];
 	}
-}
\ No newline at end of file
+
+	/**
+	 * get the number of rows read from pages in memory
+	 * @return page hits
+	 */
+	public long getPageHits() {
+		return _pageHits;
+	}
+
+	/**
+	 * get the number of pages read from the source
+	 * @return page misses
+	 */
+	public long getPageMisses() {
+		return _pageMisses;
+	}
+}
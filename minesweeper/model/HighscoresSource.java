@@ -0,0 +1,24 @@
+package minesweeper.model;
+
+/**
+ *  Highscores Source- where the {@link Highscores} records are kept.
+ *  every saved record gets a sequence number (its place in the history), and is read back by it,
+ *  so the highscores table doesn't have to keep the records themselves.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface HighscoresSource {
+	/**
+	 * save a new record
+	 * @param record
+	 * @return the record's sequence number
+	 */
+	long save(HighscoreRecord record);
+
+	/**
+	 * read a saved record
+	 * @param sequence the record's sequence number
+	 * @return record, or null if it can't be read
+	 */
+	HighscoreRecord read(long sequence);
+}
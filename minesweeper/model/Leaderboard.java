@@ -0,0 +1,423 @@
+package minesweeper.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  Leaderboard- the whole records history of a single level, ordered by {@link HighscoreRecord#compareTo}.
+ *  the records themselves are not kept: every entry keeps the record's sequence number (to read it from its
+ *  {@link HighscoresSource}) and the few fields it is ordered by, in parallel arrays (entry = index), so a large history
+ *  costs a few bytes per record and no objects (the players names are shared).
+ *  the entries are kept in a treap (a randomized binary search tree) whose nodes know their subtree sizes,
+ *  so adding a record, getting the entry at a rank and getting the rank of a result are all O(log n).
+ *  equal records keep the order they were added in.
+ *  the other orders (time, player) are sorted once from the ranks order, and kept until a record is added.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class Leaderboard {
+	public static final int ORDER_RANK = 0;		// best first
+	public static final int ORDER_TIME = 1;		// fastest first (then by rank)
+	public static final int ORDER_PLAYER = 2;	// by player name (then by rank)
+	private static final int ORDERS = 3;
+	private static final int NIL = -1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private String _key;
+	private int _count;
+
+	// entries
+	private long[] _sequences = new long[INITIAL_CAPACITY];
+	private double[] _scores = new double[INITIAL_CAPACITY];
+	private double[] _efficiencies = new double[INITIAL_CAPACITY];
+	private long[] _elapsedTimes = new long[INITIAL_CAPACITY];
+	private String[] _players = new String[INITIAL_CAPACITY];
+	private Map<String, String> _playerNames = new HashMap<String, String>();	// a single copy of every name
+
+	// treap nodes (node = entry)
+	private int[] _left = new int[INITIAL_CAPACITY];
+	private int[] _right = new int[INITIAL_CAPACITY];
+	private int[] _size = new int[INITIAL_CAPACITY];		// subtree sizes
+	private int[] _priority = new int[INITIAL_CAPACITY];	// heap priorities (random)
+	private int _root = NIL;
+	private int _random = 0x2545F491;	// xorshift state for the priorities
+
+	private Map<String, Integer> _personalBests = new HashMap<String, Integer>();	// player name -> best entry
+	private int[][] _orders = new int[ORDERS][];		// entries by order (null until needed)
+	private int[][] _bestsOrders = new int[ORDERS][];	// personal bests entries by order (null until needed)
+
+	/**
+	 * create a new empty leaderboard
+	 * @param key level key
+	 * @see HighscoreRecord#getLevelKey()
+	 */
+	public Leaderboard(String key) {
+		_key = key;
+	}
+
+	/**
+	 * get the level key
+	 * @return level key
+	 */
+	public String getKey() {
+		return _key;
+	}
+
+	/**
+	 * get the number of records
+	 * @return records count
+	 */
+	public int size() {
+		return _count;
+	}
+
+	/**
+	 * add a record
+	 * @param sequence the record's sequence number in its source
+	 * @param record
+	 * @return the record's entry
+	 */
+	public int add(long sequence, HighscoreRecord record) {
+		if (_count == _sequences.length) {
+			int capacity = _count * 2;
+			_sequences = Arrays.copyOf(_sequences, capacity);
+			_scores = Arrays.copyOf(_scores, capacity);
+			_efficiencies = Arrays.copyOf(_efficiencies, capacity);
+			_elapsedTimes = Arrays.copyOf(_elapsedTimes, capacity);
+			_players = Arrays.copyOf(_players, capacity);
+			_left = Arrays.copyOf(_left, capacity);
+			_right = Arrays.copyOf(_right, capacity);
+			_size = Arrays.copyOf(_size, capacity);
+			_priority = Arrays.copyOf(_priority, capacity);
+		}
+
+		String player = _playerNames.get(record.getPlayerName());
+		if (player == null) {
+			player = record.getPlayerName();
+			_playerNames.put(player, player);
+		}
+
+		int entry = _count++;
+		_sequences[entry] = sequence;
+		_scores[entry] = record.getScore();
+		_efficiencies[entry] = record.getEfficiency();
+		_elapsedTimes[entry] = record.getElapsedTime();
+		_players[entry] = player;
+
+		_left[entry] = _right[entry] = NIL;
+		_size[entry] = 1;
+		_random ^= _random << 13;
+		_random ^= _random >>> 17;
+		_random ^= _random << 5;
+		_priority[entry] = _random;
+		_root = insert(_root, entry);
+
+		Integer best = _personalBests.get(player);
+		if (best == null || compare(entry, best) < 0)
+			_personalBests.put(player, entry);
+
+		Arrays.fill(_orders, null);
+		Arrays.fill(_bestsOrders, null);
+		return entry;
+	}
+
+	/**
+	 * get the entry at a given rank
+	 * @param rank 0 for the best record
+	 * @return entry
+	 * @throws IndexOutOfBoundsException if there is no such rank
+	 */
+	public int getEntry(int rank) {
+		if (rank < 0 || rank >= _count)
+			throw new IndexOutOfBoundsException("rank " + rank + " of " + _count);
+
+		int node = _root;
+		while (true) {
+			int leftSize = size(_left[node]);
+			if (rank < leftSize) {
+				node = _left[node];
+			} else if (rank == leftSize) {
+				return node;
+			} else {
+				rank -= leftSize + 1;
+				node = _right[node];
+			}
+		}
+	}
+
+	/**
+	 * get an entry's record sequence number
+	 * @param entry
+	 * @return sequence number in the records source
+	 */
+	public long getSequence(int entry) {
+		return _sequences[entry];
+	}
+
+	/**
+	 * get an entry's player name
+	 * @param entry
+	 * @return player name
+	 */
+	public String getPlayerName(int entry) {
+		return _players[entry];
+	}
+
+	/**
+	 * get an entry's rank- 1 + the number of better records (equal records share a rank)
+	 * @param entry
+	 * @return rank, 1 for the best
+	 */
+	public int getRank(int entry) {
+		int better = 0;
+		int node = _root;
+
+		while (node != NIL) {
+			if (compare(node, _scores[entry], _efficiencies[entry], _elapsedTimes[entry]) < 0) {
+				better += size(_left[node]) + 1;
+				node = _right[node];
+			} else {
+				node = _left[node];
+			}
+		}
+
+		return better + 1;
+	}
+
+	/**
+	 * get the rank a result has (or would have) in this leaderboard- 1 + the number of better records
+	 * @param record a result (it doesn't have to be in the leaderboard)
+	 * @return rank, 1 for the best
+	 */
+	public int getRank(HighscoreRecord record) {
+		int better = 0;
+		int node = _root;
+
+		while (node != NIL) {
+			if (compare(node, record.getScore(), record.getEfficiency(), record.getElapsedTime()) < 0) {
+				better += size(_left[node]) + 1;
+				node = _right[node];
+			} else {
+				node = _left[node];
+			}
+		}
+
+		return better + 1;
+	}
+
+	/**
+	 * get a player's best entry
+	 * @param playerName
+	 * @return best entry, or -1 if the player has no records
+	 */
+	public int getPersonalBest(String playerName) {
+		Integer best = _personalBests.get(playerName);
+		return (best == null) ? NIL : best;
+	}
+
+	/**
+	 * get the number of players
+	 * @return players count
+	 */
+	public int getPlayers() {
+		return _personalBests.size();
+	}
+
+	/**
+	 * get all the entries in an order
+	 * @param order ORDER_RANK, ORDER_TIME or ORDER_PLAYER
+	 * @return entries (shared- don't change it)
+	 */
+	public int[] getOrder(int order) {
+		if (_orders[order] == null) {
+			int[] entries = new int[_count];
+			int node = _root;
+			int[] stack = new int[64];	// the treap depth is O(log n)
+			int depth = 0;
+			int index = 0;
+
+			// in order traversal- the ranks order
+			while (node != NIL || depth > 0) {
+				while (node != NIL) {
+					if (depth == stack.length)
+						stack = Arrays.copyOf(stack, depth * 2);
+					stack[depth++] = node;
+					node = _left[node];
+				}
+				node = stack[--depth];
+				entries[index++] = node;
+				node = _right[node];
+			}
+
+			if (order != ORDER_RANK)
+				sort(entries, order);	// stable- equal entries stay in the ranks order
+			_orders[order] = entries;
+		}
+		return _orders[order];
+	}
+
+	/**
+	 * get the best entry of every player in an order
+	 * @param order ORDER_RANK, ORDER_TIME or ORDER_PLAYER
+	 * @return entries (shared- don't change it)
+	 */
+	public int[] getPersonalBests(int order) {
+		if (_bestsOrders[order] == null) {
+			int[] entries = new int[_personalBests.size()];
+			int index = 0;
+			for (int entry : _personalBests.values()) {
+				entries[index++] = entry;
+			}
+
+			sort(entries, ORDER_RANK);
+			sort(entries, order);	// stable- equal entries stay in the ranks order
+			_bestsOrders[order] = entries;
+		}
+		return _bestsOrders[order];
+	}
+
+	/**
+	 * sort entries (a stable merge sort, so the entries which are equal in the order keep their current order)
+	 * @param entries
+	 * @param order
+	 */
+	private void sort(int[] entries, int order) {
+		int[] buffer = new int[entries.length];
+		for (int width = 1; width < entries.length; width *= 2) {
+			for (int from = 0; from < entries.length; from += width * 2) {
+				int middle = Math.min(from + width, entries.length);
+				int to = Math.min(from + width * 2, entries.length);
+				int left = from, right = middle, index = from;
+
+				while (left < middle && right < to) {
+					if (compare(entries[right], entries[left], order) < 0)
+						buffer[index++] = entries[right++];
+					else
+						buffer[index++] = entries[left++];
+				}
+				while (left < middle) {
+					buffer[index++] = entries[left++];
+				}
+				while (right < to) {
+					buffer[index++] = entries[right++];
+				}
+			}
+			System.arraycopy(buffer, 0, entries, 0, entries.length);
+		}
+	}
+
+	/**
+	 * compare entries in an order
+	 * @param entry
+	 * @param other
+	 * @param order
+	 * @return negative if entry comes first, 0 if they are equal in the order
+	 */
+	private int compare(int entry, int other, int order) {
+		switch (order) {
+		case ORDER_TIME:
+			return Long.compare(_elapsedTimes[entry], _elapsedTimes[other]);
+		case ORDER_PLAYER:
+			return _players[entry].compareToIgnoreCase(_players[other]);
+		default:
+			return compare(entry, other);
+		}
+	}
+
+	/**
+	 * compare entries like {@link HighscoreRecord#compareTo}
+	 * @param entry
+	 * @param other
+	 * @return negative if entry is better
+	 */
+	private int compare(int entry, int other) {
+		return compare(entry, _scores[other], _efficiencies[other], _elapsedTimes[other]);
+	}
+
+	/**
+	 * compare an entry to a result like {@link HighscoreRecord#compareTo}
+	 * @param entry
+	 * @param score
+	 * @param efficiency
+	 * @param elapsedTime
+	 * @return negative if entry is better
+	 */
+	private int compare(int entry, double score, double efficiency, long elapsedTime) {
+		int result = Double.compare(score, _scores[entry]);
+		if (result == 0)
+			result = Double.compare(efficiency, _efficiencies[entry]);
+		if (result == 0)
+			result = Long.compare(_elapsedTimes[entry], elapsedTime);
+		return result;
+	}
+
+	/**
+	 * insert a node into a subtree
+	 * @param root subtree root
+	 * @param node new node
+	 * @return new subtree root
+	 */
+	private int insert(int root, int node) {
+		if (root == NIL)
+			return node;
+
+		if (compare(node, root) < 0) {
+			_left[root] = insert(_left[root], node);
+			if (_priority[_left[root]] > _priority[root])
+				root = rotateRight(root);
+		} else {
+			_right[root] = insert(_right[root], node);	// equal records after the older ones
+			if (_priority[_right[root]] > _priority[root])
+				root = rotateLeft(root);
+		}
+
+		update(root);
+		return root;
+	}
+
+	/**
+	 * rotate a subtree right (its left child becomes the root)
+	 * @param root
+	 * @return new root
+	 */
+	private int rotateRight(int root) {
+		int child = _left[root];
+		_left[root] = _right[child];
+		_right[child] = root;
+		update(root);
+		update(child);
+		return child;
+	}
+
+	/**
+	 * rotate a subtree left (its right child becomes the root)
+	 * @param root
+	 * @return new root
+	 */
+	private int rotateLeft(int root) {
+		int child = _right[root];
+		_right[root] = _left[child];
+		_left[child] = root;
+		update(root);
+		update(child);
+		return child;
+	}
+
+	/**
+	 * update a node's subtree size from its children
+	 * @param node
+	 */
+	private void update(int node) {
+		_size[node] = size(_left[node]) + size(_right[node]) + 1;
+	}
+
+	/**
+	 * get a subtree size
+	 * @param node subtree root, or NIL
+	 * @return size
+	 */
+	private int size(int node) {
+		return (node == NIL) ? 0 : _size[node];
+	}
+}
@@ -8,10 +8,15 @@ import java.awt.Color;
  *  @version    1.0
  */
 public class Level {
+	public static final String CUSTOM_NAME = "Custom";
+	
 	private Size _size;
 	private String _assetsPrefix;
 	private String _name;
 	private int _mines; 
+	private Long _seed;	// fixed board seed (for reproducible games), or null for a new random board every game
+	private boolean _canvasRendering;	// paint the board as a single canvas instead of a field buttons grid
+	private boolean _noGuess;	// place the mines so the board can be solved without guessing
 	private Color _lablesColor = new Color(44,70,123); // default labels color
 	
 	/**
@@ -74,6 +79,54 @@ public class Level {
 		return _lablesColor;
 	}
 	
+	/**
+	 * get the level's fixed board seed
+	 * @return board seed, or null if every game gets a new random board
+	 */
+	public Long getSeed() {
+		return _seed;
+	}
+	
+	/**
+	 * set a fixed board seed, so every game of this level gets the same board for the same first click
+	 * @param seed board seed, or null for a new random board every game
+	 */
+	public void setSeed(Long seed) {
+		_seed = seed;
+	}
+	
+	/**
+	 * check if the board of this level is painted as a single canvas (for large boards)
+	 * @return true for a canvas board, false for a field buttons grid
+	 */
+	public boolean isCanvasRendering() {
+		return _canvasRendering;
+	}
+	
+	/**
+	 * set the board rendering mode of this level
+	 * @param canvasRendering true for a canvas board, false for a field buttons grid
+	 */
+	public void setCanvasRendering(boolean canvasRendering) {
+		_canvasRendering = canvasRendering;
+	}
+	
+	/**
+	 * check if the boards of this level can always be solved without guessing
+	 * @return true for no guessing boards, false for random boards
+	 */
+	public boolean isNoGuess() {
+		return _noGuess;
+	}
+	
+	/**
+	 * set the "no guessing" mode of this level
+	 * @param noGuess true for no guessing boards, false for random boards
+	 */
+	public void setNoGuess(boolean noGuess) {
+		_noGuess = noGuess;
+	}
+	
 	/**
 	 * get level's assets prefix (for level theme)
 	 * @return assets prefix as string
@@ -121,7 +174,7 @@ public class Level {
 	 * @return a custom {@link Level}
 	 */
 	public static Level custom(int width, int height, int mines) {
-		return new Level(width, height, mines, "c", "Custom");
+		return new Level(width, height, mines, "c", CUSTOM_NAME);
 	}
 	
 	/**
@@ -129,6 +182,6 @@ public class Level {
 	 * @return an empty {@link Level}
 	 */
 	public static Level customEmpty() {
-		return new Level("c", "Custom");
+		return new Level("c", CUSTOM_NAME);
 	}
 }
\ No newline at end of file
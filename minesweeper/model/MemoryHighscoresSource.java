@@ -0,0 +1,32 @@
+package minesweeper.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Memory Highscores Source- keeps the records in memory only (when the highscores files can't be used)
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MemoryHighscoresSource implements HighscoresSource {
+	private List<HighscoreRecord> _records = new ArrayList<HighscoreRecord>();
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.model.HighscoresSource#save(minesweeper.model.HighscoreRecord)
+	 */
+	@Override
+	public synchronized long save(HighscoreRecord record) {
+		_records.add(record);
+		return _records.size() - 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.model.HighscoresSource#read(long)
+	 */
+	@Override
+	public synchronized HighscoreRecord read(long sequence) {
+		return _records.get((int)sequence);
+	}
+}
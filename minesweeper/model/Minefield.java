@@ -1,52 +1,79 @@
 package minesweeper.model;
 
+import java.util.SplittableRandom;
+
 /**
  *  Minefield model- holds a matrix of fields
+ *  the board is stored as one flat byte array (row * width + col), one byte per cell:
+ *  the low 4 bits hold the cell value (0-8, or MINE) and the next 2 bits hold the cell state.
+ *  {@link Field} objects are lightweight views over this array.
  *  @see Field
  *  @author     Lidan Hifi
  *  @version    1.0
  */
 public class Minefield {
+	// cell values (same order as FieldValue ordinals: ZERO..EIGHT, MINE)
+	public static final int MINE = 9;
+	
+	// cell states
+	public static final int STATE_UNFLAGGED = 0;
+	public static final int STATE_OPENED = 1;
+	public static final int STATE_FLAGGED = 2;
+	
+	private static final int VALUE_MASK = 0x0F;
+	private static final int STATE_SHIFT = 4;
+	private static final int STATE_MASK = 0x03 << STATE_SHIFT;
+	
 	private int _flags;
 	private int _correctFlags;
 	private int _mines;
+	private long _seed;
 	private Size _size;
-	private Field[][] _board;
+	private byte[] _board;
 	
 	/**
-	 * create a new {@link Minefield} object for a given width, height and total mines
+	 * create a new {@link Minefield} object for a given width, height, total mines and board seed
 	 * @param width
 	 * @param height
 	 * @param mines
+	 * @param seed board seed (see {@link BoardGenerator})
 	 */
-	public Minefield(int width, int height, int mines) {
+	public Minefield(int width, int height, int mines, long seed) {
 		_size = new Size(width, height);
 		_mines = mines;
 		_flags = mines;
 		_correctFlags = 0;
+		_seed = seed;
 		initializeBoard();
 	}
 	
 	/**
-	 * create a new {@link Minefield} object for a given level
+	 * create a new {@link Minefield} object for a given width, height and total mines, with a random board seed
+	 * @param width
+	 * @param height
+	 * @param mines
+	 */
+	public Minefield(int width, int height, int mines) {
+		this(width, height, mines, new SplittableRandom().nextLong());
+	}
+	
+	/**
+	 * create a new {@link Minefield} object for a given level.
+	 * uses the level's seed if it has one, or a random seed if not
 	 * @see Level
 	 * @param level
 	 */
 	public Minefield(Level level) {
-		this(level.getSize().getWidth(), level.getSize().getHeight(), level.getMines());
+		this(level.getSize().getWidth(), level.getSize().getHeight(), level.getMines(),
+				level.getSeed() != null ? level.getSeed() : new SplittableRandom().nextLong());
 	}
 	
 	/**
 	 * initialize the {@link Minefield} board
 	 */
 	private void initializeBoard() {
-		_board = new Field[_size.getHeight()][_size.getWidth()];
-		
-		for (int i = 0; i < _board.length; i++) {
-			for (int j = 0; j < _board[i].length; j++) {
-				_board[i][j] = new Field();
-			}
-		}
+		// all cells start as zero & unflagged, which is the zero byte
+		_board = new byte[_size.getHeight() * _size.getWidth()];
 	}
 	
 	/*
@@ -57,9 +84,9 @@ public class Minefield {
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		
-		for (int i = 0; i < _board.length; i++) {
-			for (int j = 0; j < _board[i].length; j++) {
-				sb.append(_board[i][j].getValue() + " ");
+		for (int i = 0; i < _size.getHeight(); i++) {
+			for (int j = 0; j < _size.getWidth(); j++) {
+				sb.append(getField(i, j).getValue() + " ");
 			}
 			sb.append("\n");
 		}
@@ -98,6 +125,25 @@ public class Minefield {
 		_correctFlags++;
 	}
 	
+	/**
+	 * decrement correct flags by 1
+	 */
+	public void decrementCorrectFlags() {
+		if (_correctFlags > 0)
+			_correctFlags--;
+	}
+	
+	/**
+	 * count the correct flags again (after the mines are placed, since fields may be flagged before that)
+	 */
+	public void recountCorrectFlags() {
+		_correctFlags = 0;
+		for (int i = 0; i < _board.length; i++) {
+			if (getCellState(i) == STATE_FLAGGED && isMine(i))
+				_correctFlags++;
+		}
+	}
+	
 	/**
 	 * increment total flags by 1
 	 */
@@ -122,6 +168,15 @@ public class Minefield {
 		return _mines;
 	}
 	
+	/**
+	 * get the board seed- the same seed and the same first click always produce the same board
+	 * @see BoardGenerator
+	 * @return board seed
+	 */
+	public long getSeed() {
+		return _seed;
+	}
+	
 	/**
 	 * get board size
 	 * @see Size
@@ -132,20 +187,92 @@ public class Minefield {
 	}
 	
 	/**
-	 * get the game board- a matrix of {@link Field} objects
+	 * get the game board- a matrix of {@link Field} views.
+	 * the matrix is created on each call, prefer getField or the cell methods when possible
 	 * @return
 	 */
 	public Field[][] getBoard() {
-		return _board;
+		Field[][] board = new Field[_size.getHeight()][_size.getWidth()];
+		
+		for (int i = 0; i < board.length; i++) {
+			for (int j = 0; j < board[i].length; j++) {
+				board[i][j] = getField(i, j);
+			}
+		}
+		
+		return board;
 	}
 
 	/**
 	 * get a specific {@link Field} for a given row & column indexes
 	 * @param row
 	 * @param col
-	 * @return {@link Field} object
+	 * @return {@link Field} view object
 	 */
 	public Field getField(int row, int col) {
-		return _board[row][col];
+		return new Field(this, getIndex(row, col));
+	}
+	
+	/**
+	 * get total cells in the board
+	 * @return width * height
+	 */
+	public int getCellsCount() {
+		return _board.length;
+	}
+	
+	/**
+	 * get the cell index for a given row & column indexes
+	 * @param row
+	 * @param col
+	 * @return cell index (row * width + col)
+	 */
+	public int getIndex(int row, int col) {
+		return row * _size.getWidth() + col;
+	}
+	
+	/**
+	 * get cell value
+	 * @param index cell index
+	 * @return 0-8 for numbers, or MINE
+	 */
+	public int getCellValue(int index) {
+		return _board[index] & VALUE_MASK;
+	}
+	
+	/**
+	 * set cell value
+	 * @param index cell index
+	 * @param value 0-8 for numbers, or MINE
+	 */
+	public void setCellValue(int index, int value) {
+		_board[index] = (byte)((_board[index] & STATE_MASK) | value);
+	}
+	
+	/**
+	 * get cell state
+	 * @param index cell index
+	 * @return STATE_UNFLAGGED, STATE_OPENED or STATE_FLAGGED
+	 */
+	public int getCellState(int index) {
+		return (_board[index] & STATE_MASK) >> STATE_SHIFT;
+	}
+	
+	/**
+	 * set cell state
+	 * @param index cell index
+	 * @param state STATE_UNFLAGGED, STATE_OPENED or STATE_FLAGGED
+	 */
+	public void setCellState(int index, int state) {
+		_board[index] = (byte)((_board[index] & VALUE_MASK) | (state << STATE_SHIFT));
+	}
+	
+	/**
+	 * check if a cell contains a mine
+	 * @param index cell index
+	 * @return true if mine, false if not
+	 */
+	public boolean isMine(int index) {
+		return (_board[index] & VALUE_MASK) == MINE;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package minesweeper.model;
+
+import java.util.SplittableRandom;
+
+/**
+ *  Mines Generator- places the mines of a new {@link Minefield} after the first click.
+ *  the mines are chosen by a partial Fisher-Yates shuffle over the indexes of the cells outside the safe zone,
+ *  so every layout is equally likely and the placement never retries, even for very dense boards.
+ *  the field numbers are computed afterwards in one pass over the board.
+ *  the random numbers are taken from the minefield seed, so the board can be reproduced.
+ *  @see SafeZone
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MinesGenerator implements BoardGenerator {
+	private SafeZone _safeZone;
+
+	/**
+	 * create a new mines generator
+	 * @param safeZone the fields around the first click which never contain a mine
+	 */
+	public MinesGenerator(SafeZone safeZone) {
+		_safeZone = safeZone;
+	}
+
+	/**
+	 * get the generator safe zone
+	 * @return safe zone
+	 */
+	public SafeZone getSafeZone() {
+		return _safeZone;
+	}
+
+	/**
+	 * set the generator safe zone
+	 * @param safeZone
+	 */
+	public void setSafeZone(SafeZone safeZone) {
+		_safeZone = safeZone;
+	}
+
+	/**
+	 * place the minefield's mines and compute the field numbers.
+	 * if the board is too small for the neighbourhood safe zone, only the clicked field is kept safe.
+	 * @see minesweeper.model.BoardGenerator#generate(minesweeper.model.Minefield, int, int)
+	 * @throws IllegalArgumentException if the mines don't fit outside the clicked field (the game could never be won)
+	 */
+	@Override
+	public void generate(Minefield minefield, int row, int col) {
+		SplittableRandom random = new SplittableRandom(minefield.getSeed());
+		int[] candidates = new int[minefield.getCellsCount()];
+		int candidatesCount = collectCandidates(minefield, row, col, _safeZone, candidates);
+
+		if (candidatesCount < minefield.getMines() && _safeZone == SafeZone.NEIGHBOURHOOD)
+			candidatesCount = collectCandidates(minefield, row, col, SafeZone.CELL, candidates);
+
+		int mines = minefield.getMines();
+		if (mines > candidatesCount)
+			throw new IllegalArgumentException(mines + " mines don't fit in " + candidatesCount + " fields outside the first click");
+
+		// partial Fisher-Yates shuffle- the first <mines> candidates are the mines
+		for (int i = 0; i < mines; i++) {
+			int j = i + random.nextInt(candidatesCount - i);
+			int mine = candidates[j];
+			candidates[j] = candidates[i];
+			candidates[i] = mine;
+
+			minefield.setCellValue(mine, Minefield.MINE);
+		}
+
+		countNeighbourMines(minefield);
+	}
+
+	/**
+	 * collect the indexes of all the cells outside the safe zone
+	 * @param minefield
+	 * @param row first click row
+	 * @param col first click column
+	 * @param safeZone
+	 * @param candidates output array, at least as long as the board
+	 * @return number of collected cells
+	 */
+	private static int collectCandidates(Minefield minefield, int row, int col, SafeZone safeZone, int[] candidates) {
+		int width = minefield.getSize().getWidth();
+		int height = minefield.getSize().getHeight();
+		int radius = (safeZone == SafeZone.NEIGHBOURHOOD) ? 1 : 0;
+		int count = 0;
+
+		for (int r = 0; r < height; r++) {
+			boolean safeRow = Math.abs(r - row) <= radius;
+			for (int c = 0; c < width; c++) {
+				if (!safeRow || Math.abs(c - col) > radius)
+					candidates[count++] = r * width + c;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * set the value of every field that is not a mine to the number of mines around it
+	 * @param minefield
+	 */
+	private static void countNeighbourMines(Minefield minefield) {
+		int width = minefield.getSize().getWidth();
+		int height = minefield.getSize().getHeight();
+
+		for (int r = 0; r < height; r++) {
+			int fromRow = Math.max(r - 1, 0), toRow = Math.min(r + 1, height - 1);
+			for (int c = 0; c < width; c++) {
+				int index = r * width + c;
+				if (minefield.isMine(index))
+					continue;
+
+				int fromCol = Math.max(c - 1, 0), toCol = Math.min(c + 1, width - 1);
+				int mines = 0;
+				for (int nr = fromRow; nr <= toRow; nr++) {
+					for (int nc = fromCol; nc <= toCol; nc++) {
+						if (minefield.isMine(nr * width + nc))
+							mines++;
+					}
+				}
+
+				minefield.setCellValue(index, mines);
+			}
+		}
+	}
+}
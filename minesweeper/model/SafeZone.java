@@ -0,0 +1,11 @@
+package minesweeper.model;
+
+/**
+ *  Safe Zone- the fields around the first click which never contain a mine
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public enum SafeZone {
+	CELL,			// only the clicked field
+	NEIGHBOURHOOD,	// the clicked field and the 8 fields around it
+}
\ No newline at end of file
@@ -0,0 +1,334 @@
+package minesweeper.model.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import minesweeper.model.BoardGenerator;
+import minesweeper.model.CellChanges;
+import minesweeper.model.GameSession;
+import minesweeper.model.GameStatus;
+import minesweeper.model.Minefield;
+import minesweeper.model.MinesGenerator;
+import minesweeper.model.SafeZone;
+
+/**
+ *  No Guess Generator- places the mines so the whole board can be cleared from the first click without guessing.
+ *  candidate layouts are generated (with a safe neighbourhood around the click) and played by the {@link Solver},
+ *  on all the cores at once. the first solvable candidate cancels the candidates after it.
+ *  candidate n is always generated from the minefield seed and n, and the lowest solvable candidate is chosen,
+ *  so the board is still reproducible from its seed (as long as it is found within the time budget).
+ *  the search is limited by a time budget in the size of the board (playing a candidate takes time in the board size):
+ *  if no candidate is solvable within it (very dense boards), the board of the fallback generator is placed-
+ *  the regular board of the game's seed.
+ *  the search takes a while on large or dense boards, so a game can {@link #prepare} the board off the event thread,
+ *  and the generate call of its first open only copies it.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class NoGuessGenerator implements BoardGenerator {
+	private static final long MIN_BUDGET = 500000000L;			// search time budget of the smallest boards, in nanoseconds
+	private static final long MAX_BUDGET = 5000000000L;			// search time budget of the largest boards
+	private static final long BUDGET_PER_CELL = 100000L;		// search time per board cell (about a hundred candidates per core)
+	private static final int STATS_SIZE = 1024;		// generation times kept for the percentiles
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static final ExecutorService _executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Board Generator");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private MinesGenerator _minesGenerator = new MinesGenerator(SafeZone.NEIGHBOURHOOD);	// places the candidates
+	private BoardGenerator _fallbackGenerator;		// places the board if no candidate is solvable
+
+	// board prepared for the next generate call
+	private Minefield _prepared;		// the prepared board (or null)
+	private Minefield _preparedFor;		// the minefield it was prepared for
+	private int _preparedRow, _preparedCol;
+
+	// statistics
+	private int _generations;
+	private int _lastAttempts;
+	private int _failures;
+	private long[] _times = new long[STATS_SIZE];	// last generation times (circular)
+
+	/**
+	 * create a new no guess generator
+	 * @param fallbackGenerator places the board if no solvable candidate is found (the game's regular generator)
+	 */
+	public NoGuessGenerator(BoardGenerator fallbackGenerator) {
+		_fallbackGenerator = fallbackGenerator;
+	}
+
+	/**
+	 * place the minefield's mines so it can be solved without guessing, and compute the field numbers.
+	 * copies the prepared board if it was prepared for this minefield & click, or searches for it now
+	 * @see minesweeper.model.BoardGenerator#generate(minesweeper.model.Minefield, int, int)
+	 */
+	@Override
+	public void generate(Minefield minefield, int row, int col) {
+		Minefield board;
+		synchronized (this) {
+			board = (_preparedFor == minefield && _preparedRow == row && _preparedCol == col) ? _prepared : null;
+			_prepared = _preparedFor = null;
+		}
+
+		if (board == null) {
+			board = createBoard(minefield);
+			search(board, minefield, row, col);
+		}
+
+		for (int index = 0; index < minefield.getCellsCount(); index++) {
+			minefield.setCellValue(index, board.getCellValue(index));
+		}
+	}
+
+	/**
+	 * search the board of a minefield ahead of its first open (may take a while- call it off the event thread).
+	 * the next generate call for the same minefield & click copies it
+	 * @param minefield an empty minefield
+	 * @param row first click row
+	 * @param col first click column
+	 * @return true if the board can be solved without guessing, false if a regular board was placed
+	 */
+	public boolean prepare(Minefield minefield, int row, int col) {
+		Minefield board = createBoard(minefield);
+		boolean found = search(board, minefield, row, col);
+
+		synchronized (this) {
+			_prepared = board;
+			_preparedFor = minefield;
+			_preparedRow = row;
+			_preparedCol = col;
+		}
+		return found;
+	}
+
+	/**
+	 * check if the board of a minefield & click was prepared
+	 * @param minefield
+	 * @param row first click row
+	 * @param col first click column
+	 * @return true if the next generate call only copies it
+	 */
+	public synchronized boolean isPrepared(Minefield minefield, int row, int col) {
+		return _preparedFor == minefield && _preparedRow == row && _preparedCol == col;
+	}
+
+	/**
+	 * search for the lowest solvable candidate, and place it (or the fallback board if there is none) on an empty board
+	 * @param board empty board to place the mines on
+	 * @param minefield the generated minefield
+	 * @param row first click row
+	 * @param col first click column
+	 * @return true if a solvable candidate was placed
+	 */
+	private boolean search(Minefield board, Minefield minefield, int row, int col) {
+		long start = System.nanoTime();
+		long budget = Math.min(Math.max(minefield.getCellsCount() * BUDGET_PER_CELL, MIN_BUDGET), MAX_BUDGET);
+
+		Search search = new Search(minefield, row, col, start + budget);
+		List<Search> workers = new ArrayList<Search>();
+		for (int i = 0; i < THREADS; i++) {
+			workers.add(search);
+		}
+
+		try {
+			_executor.invokeAll(workers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		int found = search._found.get();
+		if (found == Integer.MAX_VALUE) {
+			_fallbackGenerator.generate(board, row, col);	// no solvable candidate- a regular board
+		} else {
+			Minefield candidate = createCandidate(minefield, found);
+			_minesGenerator.generate(candidate, row, col);
+			for (int index = 0; index < board.getCellsCount(); index++) {
+				board.setCellValue(index, candidate.getCellValue(index));
+			}
+		}
+
+		recordGeneration(System.nanoTime() - start, search._next.get(), found == Integer.MAX_VALUE);
+		return found != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * create an empty board like the minefield (same size, mines & seed), to search its mines on
+	 * @param minefield the generated minefield
+	 * @return empty minefield
+	 */
+	private static Minefield createBoard(Minefield minefield) {
+		return new Minefield(minefield.getSize().getWidth(), minefield.getSize().getHeight(), minefield.getMines(), minefield.getSeed());
+	}
+
+	/**
+	 * create an empty candidate board
+	 * @param minefield the generated minefield
+	 * @param attempt candidate number
+	 * @return empty minefield with the candidate's seed
+	 */
+	private static Minefield createCandidate(Minefield minefield, int attempt) {
+		long seed = new SplittableRandom(minefield.getSeed() + attempt).nextLong();
+		return new Minefield(minefield.getSize().getWidth(), minefield.getSize().getHeight(), minefield.getMines(), seed);
+	}
+
+	/**
+	 * record a generation for the statistics
+	 * @param time search time in nanoseconds
+	 * @param attempts candidates tried
+	 * @param failed true if no solvable candidate was found
+	 */
+	private synchronized void recordGeneration(long time, int attempts, boolean failed) {
+		_times[_generations % STATS_SIZE] = time;
+		_generations++;
+		_lastAttempts = attempts;
+		if (failed)
+			_failures++;
+	}
+
+	/**
+	 * get the number of generated boards
+	 * @return generations
+	 */
+	public synchronized int getGenerations() {
+		return _generations;
+	}
+
+	/**
+	 * get the number of candidates tried for the last board (including the cancelled ones)
+	 * @return attempts
+	 */
+	public synchronized int getLastAttempts() {
+		return _lastAttempts;
+	}
+
+	/**
+	 * get the number of boards for which no solvable candidate was found
+	 * @return failures
+	 */
+	public synchronized int getFailures() {
+		return _failures;
+	}
+
+	/**
+	 * get a percentile of the last generation times (prepared or generated on the first open)
+	 * @param percentile between 0 and 1 (0.5 for the median)
+	 * @return generation time in nanoseconds, or 0 if nothing was generated
+	 */
+	public synchronized long getGenerationTimePercentile(double percentile) {
+		int count = Math.min(_generations, STATS_SIZE);
+		if (count == 0)
+			return 0;
+
+		long[] sorted = Arrays.copyOf(_times, count);
+		Arrays.sort(sorted);
+		return sorted[Math.max((int)Math.ceil(percentile * count) - 1, 0)];
+	}
+
+	/**
+	 * get the median generation time
+	 * @return p50 generation time in nanoseconds
+	 */
+	public long getGenerationTimeP50() {
+		return getGenerationTimePercentile(0.5);
+	}
+
+	/**
+	 * get the 99th percentile generation time
+	 * @return p99 generation time in nanoseconds
+	 */
+	public long getGenerationTimeP99() {
+		return getGenerationTimePercentile(0.99);
+	}
+
+	/**
+	 * check if a board can be cleared by the solver from the first click
+	 * @param minefield generated board, before the first click
+	 * @param row first click row
+	 * @param col first click column
+	 * @param generator places the mines on the first click
+	 * @return true if solvable without guessing
+	 */
+	public static boolean isSolvable(Minefield minefield, int row, int col, BoardGenerator generator) {
+		GameSession session = new GameSession(minefield, generator);
+		int width = minefield.getSize().getWidth();
+
+		session.open(row, col);
+		Solver solver = new Solver(minefield);
+
+		for (int cell = solver.getSafeCell(); cell >= 0 && session.getStatus() == GameStatus.RUNNING; cell = solver.getSafeCell()) {
+			CellChanges changes = session.open(cell / width, cell % width);
+			solver.update(changes);
+		}
+
+		// solved- or only mines are left, or only safe cells are left (by the mines count)
+		return session.getStatus() != GameStatus.LOST
+				&& (solver.getUnknownMines() == 0 || solver.getUnknownMines() == solver.getUnknownCount());
+	}
+
+	/**
+	 *  Search- a candidates search for a single board, shared by all the workers.
+	 *  each worker takes the next candidate number, until a lower candidate was found solvable or the time is up.
+ *  a taken candidate is always played to the end, so the taken candidates are 0..n without gaps, and the lowest
+ *  solvable of them doesn't depend on the threads timing.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Search implements Callable<Void> {
+		private Minefield _minefield;
+		private int _row, _col;
+		private AtomicInteger _next = new AtomicInteger();						// next candidate to try
+		private AtomicInteger _found = new AtomicInteger(Integer.MAX_VALUE);	// lowest solvable candidate
+		private long _deadline;		// System.nanoTime() of the end of the time budget
+
+		/**
+		 * create a new search
+		 * @param minefield the generated minefield
+		 * @param row first click row
+		 * @param col first click column
+		 * @param deadline System.nanoTime() of the end of the time budget
+		 */
+		public Search(Minefield minefield, int row, int col, long deadline) {
+			_minefield = minefield;
+			_row = row;
+			_col = col;
+			_deadline = deadline;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() {
+			MinesGenerator generator = new MinesGenerator(SafeZone.NEIGHBOURHOOD);
+
+			while (true) {
+				if (System.nanoTime() - _deadline > 0 && _found.get() == Integer.MAX_VALUE)
+					return null;	// the time is up (before taking a candidate)
+
+				int attempt = _next.getAndIncrement();
+				if (attempt > _found.get())
+					return null;	// cancelled- a lower candidate is solvable
+
+				if (isSolvable(createCandidate(_minefield, attempt), _row, _col, generator)) {
+					int found = _found.get();
+					while (attempt < found && !_found.compareAndSet(found, attempt)) {
+						found = _found.get();
+					}
+				}
+			}
+		}
+	}
+}
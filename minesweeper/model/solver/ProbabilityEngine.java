@@ -0,0 +1,843 @@
+package minesweeper.model.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import minesweeper.model.Minefield;
+
+/**
+ *  Probability Engine- computes the exact mine probability of every unknown cell, from the visible board and the total mines.
+ *  the frontier (unknown cells next to numbers) is split into independent components, which are enumerated by backtracking.
+ *  the components are combined with the interior cells (unknown cells away from the numbers) by binomial weighting:
+ *  a frontier arrangement with k mines is weighted by the number of ways to place the other mines in the interior.
+ *  a component that did not change since the last computation is not enumerated again.
+ *  the arrangements of a component grow exponentially with its size, so a component of more than MAX_COMPONENT_CELLS cells
+ *  is counted without enumerating them- by the mines around its incomplete numbers (see {@link Component#countByStates()}).
+ *  only a component with too many such states is approximated from the numbers around its cells (see {@link #isExact()}).
+ *  works on top of a {@link Solver}, which must be up to date.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ProbabilityEngine {
+	public static final int MAX_COMPONENT_CELLS = 32;	// largest component enumerated by backtracking
+	private static final int MAX_STATES = 4096;			// states of a counted component at a single position
+	private static final int MAX_STATE_NUMBERS = 16;	// incomplete numbers in a state (4 bits each)
+
+	private Solver _solver;
+	private double[] _logFactorials;	// log(n!) for binomial weights
+
+	// last computation
+	private double[] _probabilities;
+	private double _interiorProbability;
+	private boolean _exact;
+
+	// component results by component, kept between computations
+	private Map<ComponentKey, Component> _memo = new HashMap<ComponentKey, Component>();
+	private int _memoHits, _memoMisses;
+
+	// components building (reused)
+	private int[] _parents;			// union-find over the frontier cells
+	private int[] _cells = new int[8];
+
+	/**
+	 * create a new probability engine
+	 * @param solver an up to date solver of the board
+	 * @param minefield the solver's board
+	 */
+	public ProbabilityEngine(Solver solver, Minefield minefield) {
+		_solver = solver;
+		_probabilities = new double[minefield.getCellsCount()];
+		_parents = new int[minefield.getCellsCount()];
+
+		_logFactorials = new double[minefield.getCellsCount() + 1];
+		for (int n = 1; n < _logFactorials.length; n++) {
+			_logFactorials[n] = _logFactorials[n - 1] + Math.log(n);
+		}
+	}
+
+	/**
+	 * compute the mine probabilities of the current board
+	 */
+	public void compute() {
+		BitSet frontier = _solver.getFrontier();
+		BitSet constraints = _solver.getConstraints();
+
+		// split the frontier into components- cells around the same number are connected
+		for (int cell = frontier.nextSetBit(0); cell >= 0; cell = frontier.nextSetBit(cell + 1)) {
+			_parents[cell] = cell;
+		}
+		for (int number = constraints.nextSetBit(0); number >= 0; number = constraints.nextSetBit(number + 1)) {
+			int count = _solver.getUnknownNeighbours(number, _cells);
+			for (int i = 1; i < count; i++) {
+				union(_cells[0], _cells[i]);
+			}
+		}
+
+		// collect the cells & numbers of every component
+		Map<Integer, ComponentBuilder> builders = new HashMap<Integer, ComponentBuilder>();
+		for (int cell = frontier.nextSetBit(0); cell >= 0; cell = frontier.nextSetBit(cell + 1)) {
+			builder(builders, find(cell)).addCell(cell);
+		}
+		for (int number = constraints.nextSetBit(0); number >= 0; number = constraints.nextSetBit(number + 1)) {
+			if (_solver.getUnknownNeighbours(number, _cells) > 0)
+				builder(builders, find(_cells[0])).addNumber(number, _solver.getRemainingValue(number));
+		}
+
+		// enumerate the changed components, reuse the others
+		Map<ComponentKey, Component> memo = new HashMap<ComponentKey, Component>();
+		Component[] components = new Component[builders.size()];
+		int n = 0;
+		_exact = true;
+		for (ComponentBuilder builder : builders.values()) {
+			ComponentKey key = builder.toKey();
+			Component component = _memo.get(key);
+			if (component == null) {
+				component = new Component(builder);
+				_memoMisses++;
+			} else {
+				_memoHits++;
+			}
+			memo.put(key, component);
+			components[n++] = component;
+			_exact &= component._exact;
+		}
+		_memo = memo;
+
+		combine(components, frontier.cardinality());
+	}
+
+	/**
+	 * combine the components & the interior cells into the cells probabilities
+	 * @param components frontier components
+	 * @param frontierCells number of frontier cells
+	 */
+	private void combine(Component[] components, int frontierCells) {
+		int interior = _solver.getUnknownCount() - frontierCells;
+		int mines = _solver.getUnknownMines();
+		Arrays.fill(_probabilities, 0);
+		_interiorProbability = 0;
+
+		// an approximated component keeps its own probabilities, and its expected mines are not placed elsewhere
+		int exactCount = 0;
+		for (Component component : components) {
+			if (component._exact) {
+				components[exactCount++] = component;
+			} else {
+				mines -= component._expectedMines;
+				for (int c = 0; c < component._cells.length; c++) {
+					_probabilities[component._cells[c]] = component._approximation[c];
+				}
+			}
+		}
+		components = Arrays.copyOf(components, exactCount);
+
+		// arrangements of all the components by their mines
+		double[] all = new double[] { 1 };
+		for (Component component : components) {
+			all = convolve(all, component._solutions);
+		}
+
+		// weight of k frontier mines- the ways to place the other mines in the interior
+		// (relative to the heaviest weight, to stay in the double range)
+		double maxLog = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < all.length; k++) {
+			maxLog = Math.max(maxLog, logBinomial(interior, mines - k));
+		}
+
+		double total = 0, interiorMines = 0;
+		for (int k = 0; k < all.length; k++) {
+			double weight = all[k] * weight(interior, mines - k, maxLog);
+			total += weight;
+			interiorMines += weight * (mines - k);
+		}
+
+		if (total == 0) {
+			// no arrangement matches the board (wrong input, or the approximation took too many mines)
+			useDensity();
+			return;
+		}
+
+		_interiorProbability = (interior == 0) ? 0 : interiorMines / total / interior;
+
+		for (int i = 0; i < components.length; i++) {
+			Component component = components[i];
+
+			double[] others = new double[] { 1 };
+			for (int j = 0; j < components.length; j++) {
+				if (j != i)
+					others = convolve(others, components[j]._solutions);
+			}
+
+			// weight of k mines in this component, over all the arrangements of the others
+			double[] weights = new double[component._solutions.length];
+			for (int k = 0; k < weights.length; k++) {
+				for (int m = 0; m < others.length; m++) {
+					weights[k] += others[m] * weight(interior, mines - k - m, maxLog);
+				}
+			}
+
+			for (int c = 0; c < component._cells.length; c++) {
+				_probabilities[component._cells[c]] = 0;
+			}
+			for (int k = 0; k < weights.length; k++) {
+				double[] cellMines = component._cellMines[k];
+				if (cellMines == null)
+					continue;	// no arrangement with k mines
+				for (int c = 0; c < cellMines.length; c++) {
+					_probabilities[component._cells[c]] += cellMines[c] * weights[k] / total;
+				}
+			}
+		}
+
+		// interior cells
+		for (int cell = 0; cell < _probabilities.length; cell++) {
+			if (_solver.isMine(cell))
+				_probabilities[cell] = 1;
+			else if (!_solver.isOpened(cell) && !_solver.isSafe(cell) && !_solver.getFrontier().get(cell))
+				_probabilities[cell] = _interiorProbability;
+		}
+	}
+
+	/**
+	 * give every undetermined cell the average density of the unknown mines (when the arrangements can't be weighted)
+	 */
+	private void useDensity() {
+		int unknown = _solver.getUnknownCount();
+		_interiorProbability = (unknown == 0) ? 0 : (double)_solver.getUnknownMines() / unknown;
+		_exact = false;
+
+		for (int cell = 0; cell < _probabilities.length; cell++) {
+			if (_solver.isMine(cell))
+				_probabilities[cell] = 1;
+			else if (_solver.isOpened(cell) || _solver.isSafe(cell))
+				_probabilities[cell] = 0;
+			else
+				_probabilities[cell] = _interiorProbability;
+		}
+	}
+
+	/**
+	 * get the mine probability of a cell (from the last computation)
+	 * @param index cell index
+	 * @return probability between 0 (safe or opened) and 1 (mine)
+	 */
+	public double getProbability(int index) {
+		return _probabilities[index];
+	}
+
+	/**
+	 * get the mine probability of the interior cells (unknown cells away from the numbers)
+	 * @return probability
+	 */
+	public double getInteriorProbability() {
+		return _interiorProbability;
+	}
+
+	/**
+	 * check whether the last computation was exact
+	 * @return true if every component was counted, false if a component had too many states and was approximated
+	 */
+	public boolean isExact() {
+		return _exact;
+	}
+
+	/**
+	 * get the unopened cell with the lowest mine probability (from the last computation)
+	 * @return cell index, or -1 if there is no unopened cell which is not a mine
+	 */
+	public int getSafestCell() {
+		int safest = -1;
+
+		for (int cell = 0; cell < _probabilities.length; cell++) {
+			if (!_solver.isOpened(cell) && !_solver.isMine(cell) && (safest == -1 || _probabilities[cell] < _probabilities[safest]))
+				safest = cell;
+		}
+
+		return safest;
+	}
+
+	/**
+	 * get the number of components reused from the previous computations
+	 * @return memo hits
+	 */
+	public int getMemoHits() {
+		return _memoHits;
+	}
+
+	/**
+	 * get the number of components enumerated
+	 * @return memo misses
+	 */
+	public int getMemoMisses() {
+		return _memoMisses;
+	}
+
+	/**
+	 * convolve two mine distributions (arrangements by mines)
+	 * @param a
+	 * @param b
+	 * @return distribution of the sum
+	 */
+	private static double[] convolve(double[] a, double[] b) {
+		double[] result = new double[a.length + b.length - 1];
+
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != 0) {
+				for (int j = 0; j < b.length; j++) {
+					result[i + j] += a[i] * b[j];
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * get log of n choose k
+	 * @param n
+	 * @param k
+	 * @return log binomial, or negative infinity if there is no such choice
+	 */
+	private double logBinomial(int n, int k) {
+		if (k < 0 || k > n)
+			return Double.NEGATIVE_INFINITY;
+		return _logFactorials[n] - _logFactorials[k] - _logFactorials[n - k];
+	}
+
+	/**
+	 * get n choose k, relative to a given log scale
+	 * @param n
+	 * @param k
+	 * @param scale log of the scale
+	 * @return scaled binomial
+	 */
+	private double weight(int n, int k, double scale) {
+		return (k < 0 || k > n) ? 0 : Math.exp(logBinomial(n, k) - scale);
+	}
+
+	/**
+	 * find the component root of a frontier cell
+	 * @param cell
+	 * @return root cell
+	 */
+	private int find(int cell) {
+		while (_parents[cell] != cell) {
+			_parents[cell] = _parents[_parents[cell]];
+			cell = _parents[cell];
+		}
+		return cell;
+	}
+
+	/**
+	 * connect the components of two frontier cells
+	 * @param a
+	 * @param b
+	 */
+	private void union(int a, int b) {
+		_parents[find(a)] = find(b);
+	}
+
+	/**
+	 * get (or create) the builder of a component
+	 * @param builders builders by root cell
+	 * @param root component root cell
+	 * @return component builder
+	 */
+	private ComponentBuilder builder(Map<Integer, ComponentBuilder> builders, int root) {
+		ComponentBuilder builder = builders.get(root);
+		if (builder == null) {
+			builder = new ComponentBuilder();
+			builders.put(root, builder);
+		}
+		return builder;
+	}
+
+	/**
+	 *  Component Builder- the cells & numbers of a component, in index order
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class ComponentBuilder {
+		private int[] _cells = new int[16];
+		private int _cellsCount;
+		private int[] _numbers = new int[16];	// pairs of number cell & remaining value
+		private int _numbersCount;
+
+		/**
+		 * add a frontier cell
+		 * @param cell
+		 */
+		public void addCell(int cell) {
+			if (_cellsCount == _cells.length)
+				_cells = Arrays.copyOf(_cells, _cellsCount * 2);
+			_cells[_cellsCount++] = cell;
+		}
+
+		/**
+		 * add a number
+		 * @param number number cell
+		 * @param value undetermined mines around it
+		 */
+		public void addNumber(int number, int value) {
+			if (_numbersCount + 2 > _numbers.length)
+				_numbers = Arrays.copyOf(_numbers, _numbers.length * 2);
+			_numbers[_numbersCount++] = number;
+			_numbers[_numbersCount++] = value;
+		}
+
+		/**
+		 * get the memo key- the cells and the numbers with their values
+		 * @return component key
+		 */
+		public ComponentKey toKey() {
+			int[] data = new int[_cellsCount + 1 + _numbersCount];
+			data[0] = _cellsCount;
+			System.arraycopy(_cells, 0, data, 1, _cellsCount);
+			System.arraycopy(_numbers, 0, data, 1 + _cellsCount, _numbersCount);
+			return new ComponentKey(data);
+		}
+	}
+
+	/**
+	 *  Component Key- identifies a component by its cells, numbers and their values
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class ComponentKey {
+		private int[] _data;
+		private int _hash;
+
+		/**
+		 * create a new key
+		 * @param data key data
+		 */
+		public ComponentKey(int[] data) {
+			_data = data;
+			_hash = Arrays.hashCode(data);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return _hash;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof ComponentKey) && Arrays.equals(_data, ((ComponentKey)obj)._data);
+		}
+	}
+
+	/**
+	 *  Component- all the mine arrangements of a frontier component, counted by their number of mines.
+	 *  the arrangements of a component up to MAX_COMPONENT_CELLS are enumerated by an iterative backtracking
+	 *  (the assigned cells are the stack), and those of a larger component are counted by their states.
+	 *  the counts of a large component are scaled (the probabilities are their ratios), so they stay in the double range.
+	 *  a component with too many states is approximated: each cell is a mine by the average density of the numbers
+	 *  around it, and the component takes their expected (rounded) number of mines.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private class Component {
+		private int[] _cells;
+		private boolean _exact;
+		private double[] _solutions;		// arrangements by mines
+		private double[][] _cellMines;		// arrangements by mines, in which a cell is a mine (per cell)- null for mines without arrangements
+		private double[] _approximation;	// mine probability of each cell, if the component is approximated
+		private int _expectedMines;			// mines taken by the approximated component
+
+		// enumeration state
+		private int[][] _cellNumbers;		// numbers around each cell (by enumeration order)
+		private int[] _order;				// cells in enumeration order
+		private int[] _values;				// undetermined mines around each number
+		private int[] _placed;				// mines placed around each number
+		private int[] _open;				// cells not assigned yet around each number
+		private int[] _mineCells;			// cells assigned as mines so far
+
+		/**
+		 * enumerate (or approximate) a component
+		 * @param builder component cells & numbers
+		 */
+		public Component(ComponentBuilder builder) {
+			int cellsCount = builder._cellsCount;
+			int numbersCount = builder._numbersCount / 2;
+			_cells = Arrays.copyOf(builder._cells, cellsCount);
+			_solutions = new double[cellsCount + 1];
+			_cellMines = new double[cellsCount + 1][];
+			_values = new int[numbersCount];
+			_placed = new int[numbersCount];
+			_open = new int[numbersCount];
+			_mineCells = new int[cellsCount];
+
+			// connect the cells & the numbers
+			int[][] cellNumbers = new int[cellsCount][8];
+			int[] cellNumbersCount = new int[cellsCount];
+			int[][] numberCells = new int[numbersCount][];
+			int[] neighbours = new int[8];
+			for (int i = 0; i < numbersCount; i++) {
+				_values[i] = builder._numbers[2 * i + 1];
+				int count = _solver.getUnknownNeighbours(builder._numbers[2 * i], neighbours);
+				numberCells[i] = Arrays.copyOf(neighbours, count);
+				_open[i] = count;
+				for (int j = 0; j < count; j++) {
+					int c = Arrays.binarySearch(_cells, numberCells[i][j]);
+					cellNumbers[c][cellNumbersCount[c]++] = i;
+				}
+			}
+
+			// enumerate in breadth-first order, so the numbers are completed early and dead ends are cut early
+			_order = new int[cellsCount];
+			_cellNumbers = new int[cellsCount][];
+			boolean[] ordered = new boolean[cellsCount];
+			int head = 0, tail = 0;
+			_order[tail++] = 0;
+			ordered[0] = true;
+			while (head < tail) {
+				int c = _order[head++];
+				for (int k = 0; k < cellNumbersCount[c]; k++) {
+					for (int neighbour : numberCells[cellNumbers[c][k]]) {
+						int n = Arrays.binarySearch(_cells, neighbour);
+						if (!ordered[n]) {
+							ordered[n] = true;
+							_order[tail++] = n;
+						}
+					}
+				}
+			}
+			for (int i = 0; i < cellsCount; i++) {
+				_cellNumbers[i] = Arrays.copyOf(cellNumbers[_order[i]], cellNumbersCount[_order[i]]);
+			}
+
+			_exact = true;
+			if (cellsCount <= MAX_COMPONENT_CELLS)
+				enumerate();
+			else
+				_exact = countByStates();
+
+			if (!_exact) {
+				_solutions = new double[] { 1 };	// the approximation takes no part in the weighting
+				_cellMines = new double[1][];
+				approximate(cellNumbers, cellNumbersCount);
+			}
+
+			// the enumeration state is not needed anymore (the component is kept in the memo)
+			_cellNumbers = null;
+			_order = _values = _placed = _open = _mineCells = null;
+		}
+
+		/**
+		 * assign the cells one by one in the enumeration order, and count the complete arrangements.
+		 * every position is assigned no mine first and then a mine, as long as its numbers can still be completed.
+		 */
+		private void enumerate() {
+			int[] assigned = new int[_order.length];	// mine assigned at each position, -1 if none yet
+			Arrays.fill(assigned, -1);
+			int position = 0, mines = 0;
+
+			while (position >= 0) {
+				if (position == _order.length) {
+					count(mines);
+					position--;
+					continue;
+				}
+
+				int[] numbers = _cellNumbers[position];
+				int mine = assigned[position];
+
+				// take back the current assignment of this position
+				if (mine >= 0) {
+					for (int number : numbers) {
+						_placed[number] -= mine;
+						_open[number]++;
+					}
+					mines -= mine;
+				}
+
+				// assign the next valid value- every number around the cell must still be reachable
+				for (mine++; mine <= 1; mine++) {
+					boolean valid = true;
+					for (int number : numbers) {
+						int placed = _placed[number] + mine;
+						if (placed > _values[number] || placed + _open[number] - 1 < _values[number]) {
+							valid = false;
+							break;
+						}
+					}
+					if (valid)
+						break;
+				}
+
+				if (mine > 1) {
+					// no more values- backtrack
+					assigned[position] = -1;
+					position--;
+					continue;
+				}
+
+				for (int number : numbers) {
+					_placed[number] += mine;
+					_open[number]--;
+				}
+				_mineCells[mines] = _order[position];	// used only if this cell is a mine
+				mines += mine;
+				assigned[position] = mine;
+				position++;
+			}
+		}
+
+		/**
+		 * count a complete arrangement
+		 * @param mines mines in the arrangement (the first cells of _mineCells)
+		 */
+		private void count(int mines) {
+			double[] cellMines = _cellMines[mines];
+			if (cellMines == null) {
+				cellMines = new double[_cells.length];
+				_cellMines[mines] = cellMines;
+			}
+
+			_solutions[mines]++;
+			for (int i = 0; i < mines; i++) {
+				cellMines[_mineCells[i]]++;
+			}
+		}
+
+		/**
+		 * count the arrangements of a large component position by position, in the enumeration order.
+		 * the state after a position is the mines placed around its incomplete numbers (the numbers with cells on
+		 * both sides of it), so all the partial arrangements of a state are counted together, by their mines.
+		 * the forward pass counts the ways to reach every state, and the backward pass the ways to complete it-
+		 * a cell is a mine in the ways through its position's states with a mine.
+		 * @return true if counted, false if the component has too many states (or its counts overflow)
+		 */
+		private boolean countByStates() {
+			int cellsCount = _order.length;
+			int numbersCount = _values.length;
+
+			// the number cells after every position, and a 4 bits slot of the state for every incomplete number
+			int[][] after = new int[cellsCount][];
+			int[] slots = new int[numbersCount];
+			int[] remaining = Arrays.copyOf(_open, numbersCount);
+			int usedSlots = 0;
+			Arrays.fill(slots, -1);
+			for (int i = 0; i < cellsCount; i++) {
+				int[] numbers = _cellNumbers[i];
+				after[i] = new int[numbers.length];
+				for (int k = 0; k < numbers.length; k++) {
+					int number = numbers[k];
+					if (slots[number] < 0) {
+						slots[number] = Integer.numberOfTrailingZeros(~usedSlots);
+						if (slots[number] >= MAX_STATE_NUMBERS)
+							return false;
+						usedSlots |= 1 << slots[number];
+					}
+					after[i][k] = --remaining[number];
+				}
+				for (int k = 0; k < numbers.length; k++) {
+					if (after[i][k] == 0)
+						usedSlots &= ~(1 << slots[numbers[k]]);	// complete- the slot is free again
+				}
+			}
+
+			// forward- the ways to reach every state before each position
+			List<Map<Long, Counts>> layers = new ArrayList<Map<Long, Counts>>(cellsCount);
+			Map<Long, Counts> layer = new HashMap<Long, Counts>();
+			layer.put(0L, new Counts(0, new double[] { 1 }));
+			for (int i = 0; i < cellsCount; i++) {
+				layers.add(layer);
+				Map<Long, Counts> next = new HashMap<Long, Counts>();
+				for (Map.Entry<Long, Counts> entry : layer.entrySet()) {
+					for (int mine = 0; mine <= 1; mine++) {
+						long state = nextState(entry.getKey(), i, mine, after[i], slots);
+						if (state >= 0)
+							add(next, state, entry.getValue(), mine);
+					}
+				}
+				if (next.size() > MAX_STATES)
+					return false;
+				layer = next;
+			}
+
+			// backward- the ways to complete every state after each position, and the mines through each position
+			Map<Long, Counts> completions = new HashMap<Long, Counts>();
+			if (layer.containsKey(0L))
+				completions.put(0L, new Counts(0, new double[] { 1 }));	// the final state- all the numbers complete
+			for (int i = cellsCount - 1; i >= 0; i--) {
+				Map<Long, Counts> previous = new HashMap<Long, Counts>();
+				for (Map.Entry<Long, Counts> entry : layers.get(i).entrySet()) {
+					for (int mine = 0; mine <= 1; mine++) {
+						long state = nextState(entry.getKey(), i, mine, after[i], slots);
+						Counts completion = (state >= 0) ? completions.get(state) : null;
+						if (completion == null)
+							continue;
+
+						add(previous, entry.getKey(), completion, mine);
+						if (mine == 1)
+							countMines(_order[i], entry.getValue(), completion);
+					}
+				}
+				completions = previous;
+			}
+
+			Counts solutions = completions.get(0L);
+			if (solutions == null)
+				return true;		// no arrangement
+			System.arraycopy(solutions._counts, 0, _solutions, solutions._min, solutions._counts.length);
+			return scale();
+		}
+
+		/**
+		 * get the state after a position, if the position's value keeps its numbers reachable
+		 * @param state the state before the position
+		 * @param position
+		 * @param mine 1 if the position's cell is a mine, otherwise 0
+		 * @param after the cells of the position's numbers after it
+		 * @param slots the state slot of every number
+		 * @return the next state, or -1 if a number can't be completed anymore
+		 */
+		private long nextState(long state, int position, int mine, int[] after, int[] slots) {
+			int[] numbers = _cellNumbers[position];
+			for (int k = 0; k < numbers.length; k++) {
+				int shift = 4 * slots[numbers[k]];
+				int placed = (int)((state >>> shift) & 15) + mine;
+				if (placed > _values[numbers[k]] || placed + after[k] < _values[numbers[k]])
+					return -1;
+
+				state &= ~(15L << shift);
+				if (after[k] > 0)
+					state |= (long)placed << shift;		// a complete number leaves the state
+			}
+			return state;
+		}
+
+		/**
+		 * add ways to a state, shifted by the mines of a position
+		 * @param layer ways by state
+		 * @param state
+		 * @param counts the added ways by mines
+		 * @param mine 1 if the position's cell is a mine, otherwise 0
+		 */
+		private void add(Map<Long, Counts> layer, long state, Counts counts, int mine) {
+			Counts current = layer.get(state);
+			if (current == null)
+				layer.put(state, new Counts(counts._min + mine, counts._counts.clone()));
+			else
+				current.add(counts, mine);
+		}
+
+		/**
+		 * count the arrangements through a state in which a cell is a mine, by their mines
+		 * @param cell the position's cell
+		 * @param reached the ways to reach the state, by the mines before the cell
+		 * @param completions the ways to complete it after the cell, by the mines after it
+		 */
+		private void countMines(int cell, Counts reached, Counts completions) {
+			for (int a = 0; a < reached._counts.length; a++) {
+				if (reached._counts[a] == 0)
+					continue;
+				for (int b = 0; b < completions._counts.length; b++) {
+					int mines = reached._min + a + 1 + completions._min + b;
+					if (_cellMines[mines] == null)
+						_cellMines[mines] = new double[_cells.length];
+					_cellMines[mines][cell] += reached._counts[a] * completions._counts[b];
+				}
+			}
+		}
+
+		/**
+		 * scale the counts so the largest is 1
+		 * @return false if the counts overflowed
+		 */
+		private boolean scale() {
+			double max = 0;
+			for (double solutions : _solutions) {
+				max = Math.max(max, solutions);
+			}
+			if (Double.isInfinite(max) || Double.isNaN(max))
+				return false;
+
+			for (int k = 0; k < _solutions.length; k++) {
+				_solutions[k] /= max;
+				if (_cellMines[k] != null) {
+					for (int c = 0; c < _cellMines[k].length; c++) {
+						_cellMines[k][c] /= max;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * approximate the component- every cell is a mine by the average density of the numbers around it
+		 * @param cellNumbers numbers around each cell
+		 * @param cellNumbersCount number of numbers around each cell
+		 */
+		private void approximate(int[][] cellNumbers, int[] cellNumbersCount) {
+			_approximation = new double[_cells.length];
+			double expected = 0;
+
+			for (int c = 0; c < _cells.length; c++) {
+				double density = 0;
+				for (int k = 0; k < cellNumbersCount[c]; k++) {
+					int number = cellNumbers[c][k];
+					density += (double)_values[number] / _open[number];
+				}
+				_approximation[c] = Math.min(density / cellNumbersCount[c], 1);
+				expected += _approximation[c];
+			}
+			_expectedMines = (int)Math.round(expected);
+		}
+	}
+
+	/**
+	 *  Counts- ways by mines, from a lowest mines count
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Counts {
+		private int _min;			// mines of the first count
+		private double[] _counts;	// ways by mines, from _min
+
+		/**
+		 * create new counts
+		 * @param min mines of the first count
+		 * @param counts ways by mines
+		 */
+		public Counts(int min, double[] counts) {
+			_min = min;
+			_counts = counts;
+		}
+
+		/**
+		 * add other counts, shifted by some mines
+		 * @param other
+		 * @param shift mines added to the other counts
+		 */
+		public void add(Counts other, int shift) {
+			int min = Math.min(_min, other._min + shift);
+			int max = Math.max(_min + _counts.length, other._min + shift + other._counts.length);
+			if (min < _min || max > _min + _counts.length) {
+				double[] counts = new double[max - min];
+				System.arraycopy(_counts, 0, counts, _min - min, _counts.length);
+				_counts = counts;
+				_min = min;
+			}
+
+			int offset = other._min + shift - _min;
+			for (int i = 0; i < other._counts.length; i++) {
+				_counts[offset + i] += other._counts[i];
+			}
+		}
+	}
+}
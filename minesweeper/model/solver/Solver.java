@@ -0,0 +1,421 @@
+package minesweeper.model.solver;
+
+import java.util.BitSet;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.Minefield;
+
+/**
+ *  Solver- finds the cells of a {@link Minefield} that are certainly safe or certainly mines, from the visible board only
+ *  (the opened cells and their numbers. flags are not trusted, and hidden values are never read).
+ *  two rules are applied until nothing new is found:
+ *  <ul>
+ *  <li>single cell- if a number's unknown neighbours must all be mines (or all be safe), they are.</li>
+ *  <li>pairwise- for two nearby numbers A & B, if the cells only around A must hold all of A's extra mines,
+ *  they are mines and the cells only around B are safe (this includes the subset rule).</li>
+ *  </ul>
+ *  the solver is incremental: after a move only the numbers around the changed cells are checked again,
+ *  so an update costs time in the size of the move and not of the board.
+ *  the cell sets are bitsets over the cell indexes (row * width + col).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class Solver {
+	private Minefield _minefield;
+	private int _width, _height;
+
+	// cell sets
+	private BitSet _opened;			// opened cells (seen by the solver)
+	private BitSet _safe;			// unopened cells that are certainly safe
+	private BitSet _mines;			// cells that are certainly mines
+	private BitSet _frontier;		// undetermined unopened cells next to an opened cell
+	private BitSet _constraints;	// opened cells with undetermined neighbours
+
+	// numbers to check again (circular queue, each cell queued at most once)
+	private int[] _queue;
+	private int _queueHead, _queueSize;
+	private BitSet _queued;
+
+	// undetermined neighbours of the checked numbers (reused)
+	private int[] _cellsA = new int[8], _cellsB = new int[8];
+	private int[] _onlyA = new int[8], _onlyB = new int[8];
+	private int _cellsCount;	// number of cells found by the last collect
+
+	/**
+	 * create a new solver for a given minefield, and solve its visible board
+	 * @param minefield
+	 */
+	public Solver(Minefield minefield) {
+		_minefield = minefield;
+		_width = minefield.getSize().getWidth();
+		_height = minefield.getSize().getHeight();
+
+		int cells = minefield.getCellsCount();
+		_opened = new BitSet(cells);
+		_safe = new BitSet(cells);
+		_mines = new BitSet(cells);
+		_frontier = new BitSet(cells);
+		_constraints = new BitSet(cells);
+		_queue = new int[cells];
+		_queued = new BitSet(cells);
+
+		rescan();
+	}
+
+	/**
+	 * forget everything, and solve the whole visible board again
+	 */
+	public void rescan() {
+		_opened.clear();
+		_safe.clear();
+		_mines.clear();
+		_frontier.clear();
+		_constraints.clear();
+		_queued.clear();
+		_queueSize = 0;
+
+		for (int index = 0; index < _minefield.getCellsCount(); index++) {
+			if (_minefield.getCellState(index) == Minefield.STATE_OPENED)
+				open(index);
+		}
+
+		propagate();
+	}
+
+	/**
+	 * update the solver after a move, checking only the numbers around the opened cells
+	 * @param changes changed cells of the move
+	 */
+	public void update(CellChanges changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			int index = changes.get(i);
+			if (_minefield.getCellState(index) == Minefield.STATE_OPENED && !_opened.get(index))
+				open(index);
+		}
+
+		propagate();
+	}
+
+	/**
+	 * update the solver after a single cell was opened
+	 * @param index cell index
+	 */
+	public void update(int index) {
+		if (_minefield.getCellState(index) == Minefield.STATE_OPENED && !_opened.get(index)) {
+			open(index);
+			propagate();
+		}
+	}
+
+	/**
+	 * check if a cell is certainly safe (and not opened yet)
+	 * @param index cell index
+	 * @return true if safe
+	 */
+	public boolean isSafe(int index) {
+		return _safe.get(index);
+	}
+
+	/**
+	 * check if a cell is certainly a mine
+	 * @param index cell index
+	 * @return true if mine
+	 */
+	public boolean isMine(int index) {
+		return _mines.get(index);
+	}
+
+	/**
+	 * check if a cell was seen opened by the solver
+	 * @param index cell index
+	 * @return true if opened
+	 */
+	public boolean isOpened(int index) {
+		return _opened.get(index);
+	}
+
+	/**
+	 * get a certainly safe cell which is not opened yet
+	 * @return cell index, or -1 if there is none
+	 */
+	public int getSafeCell() {
+		return _safe.nextSetBit(0);
+	}
+
+	/**
+	 * get all the certainly safe cells which are not opened yet (owned by the solver- do not modify)
+	 * @return cells bitset
+	 */
+	public BitSet getSafeCells() {
+		return _safe;
+	}
+
+	/**
+	 * get all the certainly mine cells (owned by the solver- do not modify)
+	 * @return cells bitset
+	 */
+	public BitSet getMines() {
+		return _mines;
+	}
+
+	/**
+	 * get the undetermined unopened cells next to an opened cell (owned by the solver- do not modify)
+	 * @return cells bitset
+	 */
+	public BitSet getFrontier() {
+		return _frontier;
+	}
+
+	/**
+	 * get the opened cells that still have undetermined neighbours (owned by the solver- do not modify)
+	 * @return cells bitset
+	 */
+	public BitSet getConstraints() {
+		return _constraints;
+	}
+
+	/**
+	 * get the number of undetermined unopened cells
+	 * @return cells count
+	 */
+	public int getUnknownCount() {
+		return _minefield.getCellsCount() - _opened.cardinality() - _safe.cardinality() - _mines.cardinality();
+	}
+
+	/**
+	 * get the number of mines not determined yet
+	 * @return mines count
+	 */
+	public int getUnknownMines() {
+		return _minefield.getMines() - _mines.cardinality();
+	}
+
+	/**
+	 * get the number of undetermined mines around an opened cell
+	 * @param index opened cell index
+	 * @return mines count
+	 */
+	public int getRemainingValue(int index) {
+		return collect(index, null);
+	}
+
+	/**
+	 * get the undetermined unopened neighbours of a cell
+	 * @param index cell index
+	 * @param cells array of at least 8 cells to fill
+	 * @return number of neighbours
+	 */
+	public int getUnknownNeighbours(int index, int[] cells) {
+		int row = index / _width, col = index % _width;
+		int count = 0;
+
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, _height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, _width - 1); c++) {
+				int neighbour = r * _width + c;
+				if (isUnknown(neighbour))
+					cells[count++] = neighbour;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * check if a cell is unopened and undetermined
+	 * @param index cell index
+	 * @return true if unknown
+	 */
+	private boolean isUnknown(int index) {
+		return !_opened.get(index) && !_safe.get(index) && !_mines.get(index);
+	}
+
+	/**
+	 * mark a cell as opened, and queue it & the opened numbers around it
+	 * @param index cell index
+	 */
+	private void open(int index) {
+		_opened.set(index);
+		_safe.clear(index);
+		_frontier.clear(index);
+
+		// an opened mine (a lost game) is not a number
+		if (_minefield.isMine(index))
+			return;
+
+		enqueue(index);
+
+		int row = index / _width, col = index % _width;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, _height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, _width - 1); c++) {
+				int neighbour = r * _width + c;
+				if (_opened.get(neighbour)) {
+					if (!_minefield.isMine(neighbour))
+						enqueue(neighbour);
+				} else if (isUnknown(neighbour)) {
+					_frontier.set(neighbour);
+				}
+			}
+		}
+	}
+
+	/**
+	 * determine a cell as safe or as a mine, and queue the opened numbers around it
+	 * @param index cell index
+	 * @param mine true for a mine, false for safe
+	 */
+	private void determine(int index, boolean mine) {
+		if (!isUnknown(index))
+			return;
+
+		if (mine)
+			_mines.set(index);
+		else
+			_safe.set(index);
+		_frontier.clear(index);
+
+		int row = index / _width, col = index % _width;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, _height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, _width - 1); c++) {
+				int neighbour = r * _width + c;
+				if (_opened.get(neighbour) && !_minefield.isMine(neighbour))
+					enqueue(neighbour);
+			}
+		}
+	}
+
+	/**
+	 * queue an opened number to be checked
+	 * @param index cell index
+	 */
+	private void enqueue(int index) {
+		if (!_queued.get(index)) {
+			_queued.set(index);
+			_queue[(_queueHead + _queueSize++) % _queue.length] = index;
+		}
+	}
+
+	/**
+	 * check the queued numbers until nothing new is determined
+	 */
+	private void propagate() {
+		while (_queueSize > 0) {
+			int a = _queue[_queueHead];
+			_queueHead = (_queueHead + 1) % _queue.length;
+			_queueSize--;
+			_queued.clear(a);
+
+			int minesA = collect(a, _cellsA);
+			int countA = _cellsCount;
+
+			if (countA == 0) {
+				_constraints.clear(a);
+				continue;
+			}
+			_constraints.set(a);
+
+			// single cell rule
+			if (minesA == 0 || minesA == countA) {
+				for (int i = 0; i < countA; i++) {
+					determine(_cellsA[i], minesA != 0);
+				}
+				continue;
+			}
+
+			// pairwise rule, with the numbers which may share neighbours with this one
+			int row = a / _width, col = a % _width;
+			pairs:
+			for (int r = Math.max(row - 2, 0); r <= Math.min(row + 2, _height - 1); r++) {
+				for (int c = Math.max(col - 2, 0); c <= Math.min(col + 2, _width - 1); c++) {
+					int b = r * _width + c;
+					if (b != a && _constraints.get(b) && applyPair(minesA, countA, b)) {
+						enqueue(a);		// something was determined- check this number again
+						break pairs;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * apply the pairwise rule on the checked number (its cells in _cellsA) and another number.
+	 * the cells around A only hold at least (minesA - minesB) mines- if that is all of them, they are mines and the cells around B only are safe.
+	 * @param minesA undetermined mines around A
+	 * @param countA unknown cells around A
+	 * @param b the other number
+	 * @return true if anything was determined
+	 */
+	private boolean applyPair(int minesA, int countA, int b) {
+		int minesB = collect(b, _cellsB);
+		int countB = _cellsCount;
+
+		// split the cells to A only and B only (both lists are in index order)
+		int onlyA = 0, onlyB = 0, i = 0, j = 0;
+		while (i < countA || j < countB) {
+			if (j == countB || (i < countA && _cellsA[i] < _cellsB[j])) {
+				_onlyA[onlyA++] = _cellsA[i++];
+			} else if (i == countA || _cellsB[j] < _cellsA[i]) {
+				_onlyB[onlyB++] = _cellsB[j++];
+			} else {
+				i++;
+				j++;
+			}
+		}
+
+		if (onlyA + onlyB == countA + countB)
+			return false;	// no shared cells
+
+		if (minesA - minesB == onlyA && (onlyA > 0 || onlyB > 0)) {
+			determineAll(_onlyA, onlyA, true);
+			determineAll(_onlyB, onlyB, false);
+			return true;
+		}
+
+		if (minesB - minesA == onlyB && (onlyA > 0 || onlyB > 0)) {
+			determineAll(_onlyB, onlyB, true);
+			determineAll(_onlyA, onlyA, false);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * determine a list of cells
+	 * @param cells cells list
+	 * @param count number of cells in the list
+	 * @param mine true for mines, false for safe
+	 */
+	private void determineAll(int[] cells, int count, boolean mine) {
+		for (int i = 0; i < count; i++) {
+			determine(cells[i], mine);
+		}
+	}
+
+	/**
+	 * collect the unknown neighbours of an opened number (into _cellsCount), and count its undetermined mines
+	 * @param index opened cell index
+	 * @param cells array to fill with the unknown neighbours in index order, or null to only count
+	 * @return the number minus the determined mines around it
+	 */
+	private int collect(int index, int[] cells) {
+		int row = index / _width, col = index % _width;
+		int mines = _minefield.getCellValue(index);
+		int count = 0;
+
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, _height - 1); r++) {
+			for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, _width - 1); c++) {
+				int neighbour = r * _width + c;
+				if (_mines.get(neighbour)) {
+					mines--;
+				} else if (isUnknown(neighbour)) {
+					if (cells != null)
+						cells[count] = neighbour;
+					count++;
+				}
+			}
+		}
+
+		_cellsCount = count;
+		return mines;
+	}
+}
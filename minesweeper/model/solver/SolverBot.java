@@ -0,0 +1,91 @@
+package minesweeper.model.solver;
+
+import minesweeper.model.BoardGenerator;
+import minesweeper.model.CellChanges;
+import minesweeper.model.GameSession;
+import minesweeper.model.GameStatus;
+import minesweeper.model.Minefield;
+
+/**
+ *  Solver Bot- plays a whole game headless, the way a perfect player would:
+ *  certainly safe fields are opened first, and when there are none the field with the lowest mine probability is opened (a guess).
+ *  the game is won when every field which is not a mine is opened. the bot never flags, so only the clicks that open fields are counted.
+ *  a bot is not thread safe, but separate bots can play on separate threads.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class SolverBot {
+	private boolean _won;
+	private int _clicks;
+	private int _guesses;
+
+	/**
+	 * play a game on an empty minefield, from a given first click
+	 * @param minefield an empty minefield
+	 * @param generator places the mines on the first click
+	 * @param row first click row
+	 * @param col first click column
+	 * @return true if the game was won
+	 */
+	public boolean play(Minefield minefield, BoardGenerator generator, int row, int col) {
+		GameSession session = new GameSession(minefield, generator);
+		int width = minefield.getSize().getWidth();
+
+		_won = false;
+		_clicks = 1;
+		_guesses = 0;
+
+		Solver solver = new Solver(minefield);
+		CellChanges changes = session.open(row, col);
+		solver.update(changes);
+		ProbabilityEngine probabilities = null;		// created on the first guess
+
+		while (session.getStatus() == GameStatus.RUNNING) {
+			// won- every field left is a mine
+			if (solver.getSafeCell() < 0 && solver.getUnknownMines() == solver.getUnknownCount()) {
+				_won = true;
+				break;
+			}
+
+			int cell = solver.getSafeCell();
+			if (cell < 0) {
+				if (probabilities == null)
+					probabilities = new ProbabilityEngine(solver, minefield);
+				probabilities.compute();
+				cell = probabilities.getSafestCell();
+				if (probabilities.getProbability(cell) > 0)
+					_guesses++;
+			}
+
+			changes = session.open(cell / width, cell % width);
+			solver.update(changes);
+			_clicks++;
+		}
+
+		return _won;
+	}
+
+	/**
+	 * check if the last game was won
+	 * @return true if won
+	 */
+	public boolean isWon() {
+		return _won;
+	}
+
+	/**
+	 * get the number of fields opened by the bot in the last game (including the first click)
+	 * @return clicks
+	 */
+	public int getClicks() {
+		return _clicks;
+	}
+
+	/**
+	 * get the number of guesses (opened fields which were not certainly safe) in the last game
+	 * @return guesses
+	 */
+	public int getGuesses() {
+		return _guesses;
+	}
+}
@@ -0,0 +1,155 @@
+package minesweeper.model.store;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import minesweeper.model.HighscoreRecord;
+
+/**
+ *  Highscore Record Codec- the binary form of a {@link HighscoreRecord}.
+ *  a record is framed as [length][payload][crc32 of the payload], so a reader can skip a damaged record
+ *  and stop at a record which was not completely written.
+ *  payload: elapsed time (long, ns), paused time (long, ns), 3BV (int), clicks (int),
+ *  player name and level name (each a short length and UTF-8 bytes), board width, height and mines (int each).
+ *  fields added to the end of the payload are optional- a shorter payload (an older record) reads them as 0.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class HighscoreRecordCodec {
+	public static final int FRAME_OVERHEAD = 8;			// length & crc
+	public static final int MAX_PAYLOAD_SIZE = 1024;	// larger lengths are damaged frames
+	public static final int MAX_NAME_LENGTH = 200;		// bytes- longer names are cut
+
+	// frame check results
+	public static final int FRAME_OK = 0;
+	public static final int FRAME_CORRUPT = 1;		// the frame is complete, but its crc is wrong
+	public static final int FRAME_TRUNCATED = 2;	// the frame is not complete (or its length is damaged)
+
+	/**
+	 * write a record frame at the buffer's position
+	 * @param record
+	 * @param buffer buffer with at least FRAME_OVERHEAD + MAX_PAYLOAD_SIZE bytes remaining
+	 */
+	public static void encode(HighscoreRecord record, ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.putInt(0);	// length placeholder
+
+		int payloadStart = buffer.position();
+		buffer.putLong(record.getElapsedTime());
+		buffer.putLong(record.getPausedTime());
+		buffer.putInt(record.getBoardValue());
+		buffer.putInt(record.getClicks());
+		putString(buffer, record.getPlayerName());
+		putString(buffer, record.getLevelName());
+		buffer.putInt(record.getWidth());
+		buffer.putInt(record.getHeight());
+		buffer.putInt(record.getMines());
+		int length = buffer.position() - payloadStart;
+
+		buffer.putInt(start, length);
+		buffer.putInt((int)crc(buffer, payloadStart, length));
+	}
+
+	/**
+	 * check the frame at the buffer's position, without moving it
+	 * @param buffer
+	 * @return FRAME_OK, FRAME_CORRUPT or FRAME_TRUNCATED
+	 */
+	public static int check(ByteBuffer buffer) {
+		int start = buffer.position();
+		if (buffer.remaining() < FRAME_OVERHEAD)
+			return FRAME_TRUNCATED;
+
+		int length = buffer.getInt(start);
+		if (length < 0 || length > MAX_PAYLOAD_SIZE || buffer.remaining() < length + FRAME_OVERHEAD)
+			return FRAME_TRUNCATED;
+
+		int expected = buffer.getInt(start + 4 + length);
+		return (int)crc(buffer, start + 4, length) == expected ? FRAME_OK : FRAME_CORRUPT;
+	}
+
+	/**
+	 * get the size of the frame at the buffer's position (it must not be truncated)
+	 * @param buffer
+	 * @return frame size in bytes
+	 */
+	public static int frameSize(ByteBuffer buffer) {
+		return buffer.getInt(buffer.position()) + FRAME_OVERHEAD;
+	}
+
+	/**
+	 * read a checked frame at the buffer's position, and move the position after it
+	 * @param buffer
+	 * @return record, or null if the payload is damaged (the position is still moved after the frame)
+	 */
+	public static HighscoreRecord decode(ByteBuffer buffer) {
+		int end = buffer.position() + frameSize(buffer);
+		int payloadEnd = end - 4;	// before the crc
+		buffer.getInt();	// length
+
+		try {
+			long elapsedTime = buffer.getLong();
+			long pausedTime = buffer.getLong();
+			int boardValue = buffer.getInt();
+			int clicks = buffer.getInt();
+			String playerName = getString(buffer, payloadEnd);
+			String levelName = getString(buffer, payloadEnd);
+			int width = 0, height = 0, mines = 0;
+			if (buffer.position() + 12 <= payloadEnd) {
+				width = buffer.getInt();
+				height = buffer.getInt();
+				mines = buffer.getInt();
+			}
+			return new HighscoreRecord(playerName, levelName, width, height, mines, elapsedTime, pausedTime, boardValue, clicks);
+		} catch (BufferUnderflowException e) {
+			return null;
+		} finally {
+			buffer.position(end);
+		}
+	}
+
+	/**
+	 * compute the crc32 of a buffer range, without moving its position
+	 * @param buffer
+	 * @param offset
+	 * @param length
+	 * @return crc32
+	 */
+	private static long crc(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer range = buffer.duplicate();
+		range.limit(offset + length).position(offset);
+		CRC32 crc = new CRC32();
+		crc.update(range);
+		return crc.getValue();
+	}
+
+	/**
+	 * write a string as a short length and UTF-8 bytes
+	 * @param buffer
+	 * @param value string (null is written as empty)
+	 */
+	private static void putString(ByteBuffer buffer, String value) {
+		byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_NAME_LENGTH);
+		buffer.putShort((short)length);
+		buffer.put(bytes, 0, length);
+	}
+
+	/**
+	 * read a string written by putString
+	 * @param buffer
+	 * @param end end of the payload
+	 * @return string
+	 */
+	private static String getString(ByteBuffer buffer, int end) {
+		int length = buffer.getShort();
+		if (length < 0 || buffer.position() + length > end)
+			throw new BufferUnderflowException();
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,450 @@
+package minesweeper.model.store;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import minesweeper.model.HighscoreRecord;
+import minesweeper.model.HighscoresSource;
+
+/**
+ *  Highscores Persistence- crash safe highscores files, written off the UI thread.
+ *  saved records are queued to a single writer thread, which appends them to a journal and forces it to the disk
+ *  once for every batch of records that were queued together.
+ *  the snapshot is a list of segments: the snapshot file and the files after it (snapshot.N, by their first generation N).
+ *  every journal generation is a generation of records, and a segment holds the records of a range of generations-
+ *  from its first generation (0 for the snapshot file) to the generation in its header (not included).
+ *  when the journal is long enough, it is compacted into a new segment, which is merged with the newest segments
+ *  as long as they are not larger than it (like a binary counter): the merged segment is written to a temporary file,
+ *  forced, and renamed over the first merged one in one atomic step, then the other merged ones are deleted and the journal
+ *  is reset. a record is copied once per doubling of the segment it is in, so the compactions write O(n log n) records,
+ *  not the whole snapshot every time, and there are O(log n) segments.
+ *  on startup the segments are loaded in order and the journal is replayed after them.
+ *  a crash at any point leaves the old segments or the new one, never a partial file: a segment that starts before the end
+ *  of the segment before it was merged into it (and is deleted), and a journal of an older generation than the last
+ *  segment's end was compacted (and is reset), so no record is replayed twice.
+ *  a record's sequence number is its frame number in the segments and the journal after them. a compaction keeps the frames
+ *  in the same order, so the sequence numbers never change, and records are read back by them
+ *  (a saved record is read from memory until it is written).
+ *  the files are never memory mapped, and a file is closed before it is replaced or deleted (see {@link HighscoresStore}).
+ *  @see HighscoresStore
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class HighscoresPersistence implements HighscoresSource, Runnable {
+	public static final int COMPACT_RECORDS = 1000;		// journal records that start a compaction
+	private static final int MAX_BATCH = 256;			// records written with a single force
+	private static final long CLOSE_TIMEOUT = 5000;		// milliseconds to wait for the queued records on close
+	private static final HighscoreRecord CLOSE = new HighscoreRecord("", "", 0, 0, 0, 0, 0, 0, 0);	// stops the writer
+
+	private File _snapshotFile;
+	private List<HighscoresStore> _segments = new ArrayList<HighscoresStore>();	// the snapshot, oldest generations first
+	private HighscoresStore _journal;
+	private int _journalRecords;
+	private BlockingQueue<HighscoreRecord> _queue = new LinkedBlockingQueue<HighscoreRecord>();
+	private Map<Long, HighscoreRecord> _pending = new ConcurrentHashMap<Long, HighscoreRecord>();	// saved records which are not written yet
+	private long _nextSequence;		// sequence of the next saved record
+	private long _writtenSequence;	// sequence of the next written record
+	private boolean _failed;		// a write failed- the next records are kept in memory only
+	private Thread _writer;
+
+	// statistics
+	private volatile long _batches;
+	private volatile long _savedRecords;
+	private volatile long _compactions;
+	private volatile long _compactedRecords;	// records written by the compactions
+
+	/**
+	 * open the snapshot & journal files (or create them)
+	 * @param snapshotFile
+	 * @param journalFile
+	 * @throws IOException
+	 */
+	public HighscoresPersistence(File snapshotFile, File journalFile) throws IOException {
+		_snapshotFile = snapshotFile;
+		openSegments();
+		_journal = new HighscoresStore(journalFile);
+
+		long generation = getLastSegment().getGeneration();
+		if (_journal.getGeneration() < generation) {
+			_journal.reset(generation);	// compacted before the crash- its records are in the last segment
+		} else if (_journal.getGeneration() > generation) {
+			System.err.println(journalFile + " is newer than " + snapshotFile + " (the snapshot was replaced?)");
+		}
+	}
+
+	/**
+	 * open the snapshot file and the segments after it, in generation order.
+	 * a segment which starts before the end of the segment before it was merged into it before a crash- it is deleted
+	 * @throws IOException
+	 */
+	private void openSegments() throws IOException {
+		_segments.add(new HighscoresStore(_snapshotFile));
+
+		final String prefix = _snapshotFile.getName() + ".";
+		String[] names = _snapshotFile.getAbsoluteFile().getParentFile().list(new FilenameFilter() {
+			@Override
+			public boolean accept(File directory, String name) {
+				return name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d{1,18}");
+			}
+		});
+		if (names == null)
+			return;
+
+		long[] generations = new long[names.length];
+		for (int i = 0; i < names.length; i++) {
+			generations[i] = Long.parseLong(names[i].substring(prefix.length()));
+		}
+		Arrays.sort(generations);
+
+		for (long first : generations) {
+			File file = segmentFile(first);
+			long end = getLastSegment().getGeneration();
+			if (first < end) {
+				Files.delete(file.toPath());
+				System.err.println(file + " was merged into the segment before it- deleted");
+				continue;
+			}
+			if (first > end)
+				System.err.println(file + " does not follow the segment before it (a segment is missing?)");
+			_segments.add(new HighscoresStore(file));
+		}
+	}
+
+	/**
+	 * get the file of a segment
+	 * @param first the segment's first generation
+	 * @return the snapshot file for generation 0, or snapshot.first
+	 */
+	private File segmentFile(long first) {
+		return (first == 0) ? _snapshotFile : new File(_snapshotFile.getPath() + "." + first);
+	}
+
+	/**
+	 * get the newest segment
+	 * @return segment store
+	 */
+	private HighscoresStore getLastSegment() {
+		return _segments.get(_segments.size() - 1);
+	}
+
+	/**
+	 * migrate the old highscores file into the journal, if nothing was saved yet
+	 * @see LegacyHighscoresMigrator
+	 * @param legacyFile old highscores file
+	 * @return number of migrated records
+	 * @throws IOException
+	 */
+	public int migrate(File legacyFile) throws IOException {
+		if (_writer != null)
+			return 0;
+		for (HighscoresStore segment : _segments) {
+			if (!segment.isEmpty())
+				return 0;
+		}
+
+		int records = LegacyHighscoresMigrator.migrate(legacyFile, _journal);
+		_journalRecords += records;
+		return records;
+	}
+
+	/**
+	 * load the segments records, and replay the journal records after them (before the writer is started)
+	 * @param visitor receives the records, in the order they were saved (with their sequence numbers)
+	 * @throws IOException
+	 */
+	public synchronized void load(final RecordVisitor visitor) throws IOException {
+		long frames = 0;
+		for (HighscoresStore segment : _segments) {
+			load(segment, frames, visitor);
+			frames += segment.getFrames();
+		}
+		load(_journal, frames, visitor);
+
+		_journalRecords = _journal.getFrames();
+		_nextSequence = _writtenSequence = frames + _journal.getFrames();
+	}
+
+	/**
+	 * load the records of a single file
+	 * @param store segment or journal
+	 * @param first sequence of its first frame
+	 * @param visitor receives the records
+	 * @throws IOException
+	 */
+	private static void load(HighscoresStore store, final long first, final RecordVisitor visitor) throws IOException {
+		store.load(new RecordVisitor() {
+			@Override
+			public void visit(long sequence, HighscoreRecord record) {
+				visitor.visit(first + sequence, record);
+			}
+		});
+	}
+
+	/**
+	 * start the writer thread
+	 */
+	public synchronized void start() {
+		if (_writer == null) {
+			_writer = new Thread(this, "Highscores Writer");
+			_writer.setDaemon(true);
+			_writer.start();
+		}
+	}
+
+	/**
+	 * queue a record to be saved (returns immediately)
+	 * @see minesweeper.model.HighscoresSource#save(minesweeper.model.HighscoreRecord)
+	 */
+	@Override
+	public synchronized long save(HighscoreRecord record) {
+		long sequence = _nextSequence++;
+		_pending.put(sequence, record);
+		_queue.add(record);
+		return sequence;
+	}
+
+	/**
+	 * read a saved record (from memory if it is not written yet)
+	 * @see minesweeper.model.HighscoresSource#read(long)
+	 */
+	@Override
+	public HighscoreRecord read(long sequence) {
+		HighscoreRecord record = _pending.get(sequence);
+		if (record != null)
+			return record;
+
+		synchronized (this) {
+			record = _pending.get(sequence);	// written or not, while the files were swapped
+			if (record != null)
+				return record;
+
+			try {
+				for (HighscoresStore segment : _segments) {
+					if (sequence < segment.getFrames())
+						return segment.read((int)sequence);
+					sequence -= segment.getFrames();
+				}
+				return _journal.read((int)sequence);
+			} catch (IOException | IndexOutOfBoundsException e) {
+				System.err.println(e.getMessage());
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * write the queued records and stop the writer thread (waits a few seconds at most)
+	 */
+	public void close() {
+		Thread writer;
+		synchronized (this) {
+			writer = _writer;
+		}
+		if (writer == null)
+			return;
+
+		_queue.add(CLOSE);
+		try {
+			writer.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * the writer thread- writes batches of queued records until closed
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		List<HighscoreRecord> batch = new ArrayList<HighscoreRecord>(MAX_BATCH);
+		boolean closed = false;
+
+		while (!closed) {
+			try {
+				batch.add(_queue.take());
+				_queue.drainTo(batch, MAX_BATCH - 1);
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			closed = batch.remove(CLOSE);
+			try {
+				write(batch);
+				if (_journalRecords >= COMPACT_RECORDS)
+					compact();
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+			}
+			batch.clear();
+		}
+
+		try {
+			for (HighscoresStore segment : _segments) {
+				segment.close();
+			}
+			_journal.close();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * append a batch of records to the journal, and force it
+	 * @param batch
+	 * @throws IOException
+	 */
+	private void write(List<HighscoreRecord> batch) throws IOException {
+		if (batch.isEmpty() || _failed)
+			return;
+
+		try {
+			for (HighscoreRecord record : batch) {
+				_journal.append(record);
+			}
+			_journal.force();
+		} catch (IOException e) {
+			// the sequence numbers are frame numbers- a missing frame would move the next records, so stop writing
+			_failed = true;
+			throw e;
+		}
+
+		// written- read from the files from now on
+		for (int i = 0; i < batch.size(); i++) {
+			_pending.remove(_writtenSequence++);
+		}
+
+		_journalRecords += batch.size();
+		_savedRecords += batch.size();
+		_batches++;
+	}
+
+	/**
+	 * compact the journal into a new segment, merged with the newest segments which are not larger than it,
+	 * swap it in, and reset the journal
+	 * @throws IOException
+	 */
+	private void compact() throws IOException {
+		long generation = _journal.getGeneration();
+
+		// the segments merged with the journal- from the newest, while they are not larger than the merged records
+		int first = _segments.size();
+		long records = _journal.getFrames();
+		while (first > 0 && _segments.get(first - 1).getFrames() <= records) {
+			first--;
+			records += _segments.get(first).getFrames();
+		}
+		long firstGeneration = (first == 0) ? 0 : _segments.get(first - 1).getGeneration();
+		File segmentFile = segmentFile(firstGeneration);
+
+		// the new segment- the merged segments records and the journal records (ends with the journal generation)
+		File temporaryFile = new File(_snapshotFile.getPath() + ".tmp");
+		Files.deleteIfExists(temporaryFile.toPath());
+		HighscoresStore segment = new HighscoresStore(temporaryFile);
+		try {
+			segment.reset(generation + 1);
+			for (int i = first; i < _segments.size(); i++) {
+				segment.append(_segments.get(i));
+			}
+			segment.append(_journal);
+			segment.force();
+		} finally {
+			segment.close();
+		}
+
+		// swap it in (from here, a crash leaves the new segment, merged segments after it and a journal of an older generation)
+		synchronized (this) {	// no reads between the swap and the journal reset
+			List<HighscoresStore> merged = new ArrayList<HighscoresStore>(_segments.subList(first, _segments.size()));
+			for (HighscoresStore store : merged) {
+				store.close();	// a file must be closed before it is replaced or deleted (Windows)
+			}
+			_segments.subList(first, _segments.size()).clear();
+
+			try {
+				Files.move(temporaryFile.toPath(), segmentFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				forceDirectory(segmentFile);
+			} catch (IOException e) {
+				for (HighscoresStore store : merged) {
+					_segments.add(new HighscoresStore(store.getFile()));	// the rename failed- the old segments
+				}
+				throw e;
+			}
+
+			_segments.add(new HighscoresStore(segmentFile));
+			for (HighscoresStore store : merged) {
+				// a merged segment that is left is deleted on the next startup
+				if (!store.getFile().equals(segmentFile) && !store.getFile().delete())
+					System.err.println("can't delete " + store.getFile() + " after it was merged");
+			}
+			_journal.reset(generation + 1);
+		}
+		_journalRecords = 0;
+		_compactions++;
+		_compactedRecords += records;
+	}
+
+	/**
+	 * force a rename in a file's directory to the disk, where the platform allows it
+	 * @param file
+	 */
+	private static void forceDirectory(File file) {
+		File directory = file.getAbsoluteFile().getParentFile();
+		try (FileChannel channel = FileChannel.open(directory.toPath())) {
+			channel.force(true);
+		} catch (IOException e) {
+			// not supported (Windows)- the rename is still atomic
+		}
+	}
+
+	/**
+	 * get the number of records written by the writer thread
+	 * @return saved records
+	 */
+	public long getSavedRecords() {
+		return _savedRecords;
+	}
+
+	/**
+	 * get the number of forced batches
+	 * @return batches
+	 */
+	public long getBatches() {
+		return _batches;
+	}
+
+	/**
+	 * get the number of compactions
+	 * @return compactions
+	 */
+	public long getCompactions() {
+		return _compactions;
+	}
+
+	/**
+	 * get the number of records written by the compactions (the journal records and the merged segments records)
+	 * @return compacted records
+	 */
+	public long getCompactedRecords() {
+		return _compactedRecords;
+	}
+
+	/**
+	 * get the number of snapshot segments
+	 * @return segments
+	 */
+	public synchronized int getSegments() {
+		return _segments.size();
+	}
+}
@@ -0,0 +1,313 @@
+package minesweeper.model.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import minesweeper.model.HighscoreRecord;
+
+/**
+ *  Highscores Store- the highscores file: a header and the records, appended one by one.
+ *  header: magic ("MSHS"), format version, generation (version 2). records: {@link HighscoreRecordCodec} frames.
+ *  the generation orders a snapshot and its journal (see {@link HighscoresPersistence}); version 1 files are generation 0.
+ *  the file is read by positional reads of the channel (never mapped, so it can be truncated, replaced or deleted
+ *  as soon as it is closed- a mapping would keep it open until it is collected). a damaged record (wrong crc) is skipped,
+ *  and a record which was not completely written ends the file- the next append overwrites it.
+ *  (if the unreadable end is longer than a record, it is a damaged length rather than an interrupted append,
+ *  so it is copied aside to a ".damaged" file before it is overwritten)
+ *  every complete frame (damaged or not) is numbered in the order it was appended, and its offset is kept,
+ *  so a single record can be read back by its frame number without scanning the file.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class HighscoresStore {
+	public static final int MAGIC = 0x4D534853;	// "MSHS"
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 16;
+	private static final int V1_HEADER_SIZE = 8;
+	private static final int MAX_FRAME_SIZE = HighscoreRecordCodec.FRAME_OVERHEAD + HighscoreRecordCodec.MAX_PAYLOAD_SIZE;
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;	// bytes read at once by a scan
+
+	private File _file;
+	private FileChannel _channel;
+	private ByteBuffer _buffer = ByteBuffer.allocate(MAX_FRAME_SIZE);	// a single frame (reused)
+	private int _headerSize;		// by the file version
+	private long _generation;
+	private long _end;				// end of the last complete record
+	private int _skippedRecords;	// damaged records skipped by the last load
+	private long[] _offsets = new long[16];	// frames offsets
+	private int _frames;
+
+	/**
+	 * open a highscores file, or create it with an empty header
+	 * @param file
+	 * @throws IOException if the file can't be opened, or it is not a highscores file
+	 */
+	public HighscoresStore(File file) throws IOException {
+		_file = file;
+		_channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		long size = _channel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		_channel.read(header, 0);
+		int version = (size >= V1_HEADER_SIZE) ? header.getInt(4) : 0;
+
+		if (size < V1_HEADER_SIZE || (version == 2 && size < HEADER_SIZE)) {
+			reset(0);	// a new file (or a header that was not completely written)
+		} else {
+			if (header.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+				_channel.close();
+				throw new IOException(file + " is not a highscores file (or a newer version)");
+			}
+			_headerSize = (version == 1) ? V1_HEADER_SIZE : HEADER_SIZE;
+			_generation = (version == 1) ? 0 : header.getLong(8);
+			scan(null);	// find the end of the last complete record
+		}
+	}
+
+	/**
+	 * get the store file
+	 * @return file
+	 */
+	public File getFile() {
+		return _file;
+	}
+
+	/**
+	 * check if the store has no records
+	 * @return true if empty
+	 * @throws IOException
+	 */
+	public synchronized boolean isEmpty() throws IOException {
+		return _end <= _headerSize;
+	}
+
+	/**
+	 * get the store generation
+	 * @return generation
+	 */
+	public synchronized long getGeneration() {
+		return _generation;
+	}
+
+	/**
+	 * remove all the records, and write a new header (the file is forced to the disk)
+	 * @param generation new generation
+	 * @throws IOException
+	 */
+	public synchronized void reset(long generation) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+		_channel.truncate(0);
+		while (header.hasRemaining()) {
+			_channel.write(header, header.position());
+		}
+		_channel.force(true);
+
+		_headerSize = HEADER_SIZE;
+		_generation = generation;
+		_end = HEADER_SIZE;
+		_skippedRecords = 0;
+		_frames = 0;
+	}
+
+	/**
+	 * get the number of complete frames (records and damaged records)
+	 * @return frames
+	 */
+	public synchronized int getFrames() {
+		return _frames;
+	}
+
+	/**
+	 * read a single record
+	 * @param frame frame number
+	 * @return record, or null if the frame is damaged
+	 * @throws IOException
+	 */
+	public synchronized HighscoreRecord read(int frame) throws IOException {
+		if (frame < 0 || frame >= _frames)
+			throw new IndexOutOfBoundsException("frame " + frame + " of " + _frames);
+
+		long offset = _offsets[frame];
+		_buffer.clear();
+		_buffer.limit((int)Math.min(MAX_FRAME_SIZE, _end - offset));
+		while (_buffer.hasRemaining()) {
+			if (_channel.read(_buffer, offset + _buffer.position()) < 0)
+				break;
+		}
+		_buffer.flip();
+
+		if (HighscoreRecordCodec.check(_buffer) != HighscoreRecordCodec.FRAME_OK)
+			return null;
+		return HighscoreRecordCodec.decode(_buffer);
+	}
+
+	/**
+	 * read all the records
+	 * @param visitor receives the records, in the order they were appended (with their frame numbers)
+	 * @throws IOException
+	 */
+	public synchronized void load(RecordVisitor visitor) throws IOException {
+		scan(visitor);
+
+		long size = _channel.size();
+		if (_end < size)
+			System.err.println(_file + ": " + (size - _end) + " bytes of an incomplete record are ignored");
+		if (_skippedRecords > 0)
+			System.err.println(_file + ": " + _skippedRecords + " damaged records are skipped");
+	}
+
+	/**
+	 * scan the frames, and find the end of the last complete frame
+	 * @param visitor receives the records, or null to only check them
+	 * @throws IOException
+	 */
+	private void scan(RecordVisitor visitor) throws IOException {
+		long size = _channel.size();
+		_skippedRecords = 0;
+		_frames = 0;
+
+		// the buffer holds the file from a given offset- its position is the next frame
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long offset = _headerSize;
+		buffer.limit(0);
+
+		while (true) {
+			if (buffer.remaining() < MAX_FRAME_SIZE && offset + buffer.limit() < size) {
+				// read on- keep the unread bytes (the start of the next frame) at the start of the buffer
+				offset += buffer.position();
+				buffer.compact();
+				while (buffer.hasRemaining() && offset + buffer.position() < size) {
+					if (_channel.read(buffer, offset + buffer.position()) < 0)
+						break;
+				}
+				buffer.flip();
+			}
+
+			int result = HighscoreRecordCodec.check(buffer);
+			if (result == HighscoreRecordCodec.FRAME_TRUNCATED)
+				break;
+
+			int frame = addFrame(offset + buffer.position());
+			if (result == HighscoreRecordCodec.FRAME_OK && visitor != null) {
+				HighscoreRecord record = HighscoreRecordCodec.decode(buffer);
+				if (record != null)
+					visitor.visit(frame, record);
+				else
+					_skippedRecords++;
+			} else {
+				if (result == HighscoreRecordCodec.FRAME_CORRUPT)
+					_skippedRecords++;
+				buffer.position(buffer.position() + HighscoreRecordCodec.frameSize(buffer));
+			}
+		}
+
+		_end = offset + buffer.position();
+	}
+
+	/**
+	 * add a frame offset
+	 * @param offset
+	 * @return frame number
+	 */
+	private int addFrame(long offset) {
+		if (_frames == _offsets.length)
+			_offsets = Arrays.copyOf(_offsets, _frames * 2);
+		_offsets[_frames] = offset;
+		return _frames++;
+	}
+
+	/**
+	 * remove the unreadable end of the file (after the last complete record), before a record is appended
+	 * @throws IOException
+	 */
+	private void dropIncompleteRecord() throws IOException {
+		long size = _channel.size();
+		if (size <= _end)
+			return;
+
+		if (size - _end > HighscoreRecordCodec.FRAME_OVERHEAD + HighscoreRecordCodec.MAX_PAYLOAD_SIZE) {
+			// not an interrupted append- keep the unreadable records
+			File damagedFile = new File(_file.getPath() + ".damaged");
+			FileChannel damaged = FileChannel.open(damagedFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			try {
+				for (long position = _end; position < size; ) {
+					position += _channel.transferTo(position, size - position, damaged);
+				}
+			} finally {
+				damaged.close();
+			}
+			System.err.println(_file + ": " + (size - _end) + " unreadable bytes are moved to " + damagedFile);
+		}
+
+		_channel.truncate(_end);
+	}
+
+	/**
+	 * append a record to the end of the file (after the last complete record)
+	 * @param record
+	 * @throws IOException
+	 */
+	public synchronized void append(HighscoreRecord record) throws IOException {
+		_buffer.clear();
+		HighscoreRecordCodec.encode(record, _buffer);
+		_buffer.flip();
+
+		dropIncompleteRecord();
+
+		long offset = _end;
+		while (_buffer.hasRemaining()) {
+			_end += _channel.write(_buffer, _end);
+		}
+		addFrame(offset);
+	}
+
+	/**
+	 * append the records of another store (its complete record frames are copied as they are)
+	 * @param source
+	 * @throws IOException
+	 */
+	public synchronized void append(HighscoresStore source) throws IOException {
+		dropIncompleteRecord();
+
+		synchronized (source) {
+			long shift = _end - source._headerSize;
+			for (long position = source._headerSize; position < source._end; ) {
+				long transferred = source._channel.transferTo(position, source._end - position, _channel.position(_end));
+				position += transferred;
+				_end += transferred;
+			}
+			for (int frame = 0; frame < source._frames; frame++) {
+				addFrame(source._offsets[frame] + shift);
+			}
+		}
+	}
+
+	/**
+	 * force the appended records to the disk
+	 * @throws IOException
+	 */
+	public synchronized void force() throws IOException {
+		_channel.force(false);
+	}
+
+	/**
+	 * get the number of damaged records skipped by the last load
+	 * @return skipped records
+	 */
+	public synchronized int getSkippedRecords() {
+		return _skippedRecords;
+	}
+
+	/**
+	 * close the store file
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		_channel.close();
+	}
+}
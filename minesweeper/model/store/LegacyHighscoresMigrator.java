@@ -0,0 +1,87 @@
+package minesweeper.model.store;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+import minesweeper.model.ElapsedTime;
+import minesweeper.model.HighscoreRecord;
+
+/**
+ *  Legacy Highscores Migrator- moves the records of the old highscores file (a serialized records list)
+ *  into a {@link HighscoresStore}, once: the old file is renamed only after its records are appended and forced
+ *  to the disk, so it is not migrated again. the old formatted times (hh:mm:ss) are converted to nanoseconds.
+ *  the old file is read through an allow-list filter: only the classes of a records list can be deserialized
+ *  (the list, its elements array and the records- their fields are strings & numbers), anything else is rejected.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class LegacyHighscoresMigrator {
+	public static final String MIGRATED_SUFFIX = ".migrated";
+	private static final ObjectInputFilter RECORDS_FILTER = ObjectInputFilter.Config.createFilter(
+			"java.util.ArrayList;java.lang.Object;minesweeper.model.HighscoreRecord;maxdepth=3;!*");	// java.lang.Object- the list's elements array
+
+	/**
+	 * migrate the old highscores file into an empty store, if there is an old file
+	 * @param legacyFile old highscores file
+	 * @param store new highscores store
+	 * @return number of migrated records
+	 * @throws IOException if the old file can't be read (it is left as is, so the migration can be retried)
+	 */
+	@SuppressWarnings("unchecked")
+	public static int migrate(File legacyFile, HighscoresStore store) throws IOException {
+		if (!legacyFile.isFile() || !store.isEmpty())
+			return 0;
+
+		List<HighscoreRecord> records;
+		ObjectInputStream objectInputStream = new ObjectInputStream(new FileInputStream(legacyFile));
+		objectInputStream.setObjectInputFilter(RECORDS_FILTER);
+		try {
+			records = (List<HighscoreRecord>)objectInputStream.readObject();
+		} catch (ClassNotFoundException | ClassCastException | InvalidClassException e) {
+			throw new IOException(legacyFile + " is not a highscores file", e);
+		} finally {
+			objectInputStream.close();
+		}
+
+		for (HighscoreRecord record : records) {
+			long elapsedTime = record.getElapsedTime();
+			if (elapsedTime == 0)
+				elapsedTime = parseTime(record.getTime());
+			store.append(new HighscoreRecord(record.getPlayerName(), record.getLevelName(),
+					record.getWidth(), record.getHeight(), record.getMines(), elapsedTime,
+					record.getPausedTime(), record.getBoardValue(), record.getClicks()));
+		}
+		store.force();	// the records are on the disk before the old file is gone
+
+		if (!legacyFile.renameTo(new File(legacyFile.getPath() + MIGRATED_SUFFIX)))
+			System.err.println("can't rename " + legacyFile + " after the migration");
+
+		return records.size();
+	}
+
+	/**
+	 * parse an old formatted time
+	 * @param time hh:mm:ss
+	 * @return time in nanoseconds, or 0 if it can't be parsed
+	 */
+	private static long parseTime(String time) {
+		if (time == null)
+			return 0;
+
+		String[] parts = time.split(":");
+		if (parts.length != 3)
+			return 0;
+
+		try {
+			long seconds = Long.parseLong(parts[0]) * 3600 + Long.parseLong(parts[1]) * 60 + Long.parseLong(parts[2]);
+			return seconds * ElapsedTime.NANOS_PER_SECOND;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
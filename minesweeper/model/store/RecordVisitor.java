@@ -0,0 +1,17 @@
+package minesweeper.model.store;
+
+import minesweeper.model.HighscoreRecord;
+
+/**
+ *  Record Visitor- receives the records of a highscores file while it is scanned, so they don't have to be kept in a list.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public interface RecordVisitor {
+	/**
+	 * visit a record
+	 * @param sequence the record's number in the highscores history (see {@link HighscoresPersistence#read(long)})
+	 * @param record
+	 */
+	void visit(long sequence, HighscoreRecord record);
+}
@@ -0,0 +1,435 @@
+package minesweeper.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import minesweeper.model.HighscoreRecord;
+import minesweeper.model.store.HighscoreRecordCodec;
+
+/**
+ *  Score Client- submits the highscores of a game instance to a {@link ScoreServer}, off the caller's thread.
+ *  submitted records are buffered, and a single sender thread posts them in batches over a kept-alive connection:
+ *  the records submitted while a batch is sent (or within LINGER of the first one) are coalesced into the next batch.
+ *  when the server can't be reached, the batch is kept and retried with a growing delay, while new records are buffered
+ *  (up to MAX_PENDING- then new records are dropped, the local highscores files still have them).
+ *  a record the server can't rank is rejected when it is submitted, so it never fails the batch it would be sent in.
+ *  every batch has an id (the client's random id and the batch number), which is kept when it is retried: a post that
+ *  failed after the server got it (a timeout or a lost connection while waiting for the response) is retried as is,
+ *  and the server answers the retry without ingesting it again (see {@link ScoreServer#BATCH_ID_HEADER}).
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ScoreClient implements Runnable {
+	public static final int MAX_BATCH = 1000;			// records posted together
+	public static final int MAX_PENDING = 100000;		// buffered records
+	private static final long LINGER = 20;				// milliseconds to wait for more records before a batch is sent
+	private static final long MIN_RETRY_DELAY = 500;	// milliseconds
+	private static final long MAX_RETRY_DELAY = 30000;	// milliseconds
+	private static final int TIMEOUT = 10000;			// milliseconds to connect, and to wait for a response
+	private static final long CLOSE_TIMEOUT = 5000;		// milliseconds to wait for the buffered records on close
+	private static final HighscoreRecord CLOSE = new HighscoreRecord("", "", 0, 0, 0, 0, 0, 0, 0);	// stops the sender
+
+	private InetSocketAddress _address;
+	private String _clientId = UUID.randomUUID().toString();	// prefix of the batch ids
+	private long _batchNumber;		// number of the batch being sent
+	private BlockingQueue<HighscoreRecord> _queue = new LinkedBlockingQueue<HighscoreRecord>(MAX_PENDING);
+	private ByteBuffer _body = ByteBuffer.allocate(MAX_BATCH * (HighscoreRecordCodec.FRAME_OVERHEAD + HighscoreRecordCodec.MAX_PAYLOAD_SIZE));
+	private Socket _socket;
+	private InputStream _input;
+	private OutputStream _output;
+	private Thread _sender;
+	private volatile boolean _closing;
+
+	// statistics
+	private AtomicLong _droppedRecords = new AtomicLong();
+	private volatile long _sentRecords;
+	private AtomicLong _rejectedRecords = new AtomicLong();	// rejected when submitted, or by the server
+	private volatile long _requests;
+	private volatile long _failures;
+
+	/**
+	 * create a new score client (nothing is connected until a record is submitted)
+	 * @param address score server address
+	 */
+	public ScoreClient(InetSocketAddress address) {
+		_address = address;
+	}
+
+	/**
+	 * parse a server address
+	 * @param address host:port
+	 * @return socket address
+	 * @throws IllegalArgumentException if it is not host:port
+	 */
+	public static InetSocketAddress parseAddress(String address) {
+		int colon = address.lastIndexOf(':');
+		if (colon <= 0)
+			throw new IllegalArgumentException("not host:port: " + address);
+		return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+	}
+
+	/**
+	 * start the sender thread
+	 */
+	public synchronized void start() {
+		if (_sender == null) {
+			_sender = new Thread(this, "Score Client");
+			_sender.setDaemon(true);
+			_sender.start();
+		}
+	}
+
+	/**
+	 * submit a record (returns immediately)
+	 * @param record
+	 * @return true if it was buffered, false if it can't be ranked (see {@link ScoreServer#isValid}),
+	 * or the buffer is full (or the client is closed) and it was dropped
+	 */
+	public boolean submit(HighscoreRecord record) {
+		if (!ScoreServer.isValid(record)) {
+			_rejectedRecords.incrementAndGet();
+			return false;
+		}
+		if (_closing || !_queue.offer(record)) {
+			_droppedRecords.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * send the buffered records and stop the sender thread (waits a few seconds at most)
+	 */
+	public void close() {
+		Thread sender;
+		synchronized (this) {
+			sender = _sender;
+		}
+		_closing = true;
+		if (sender == null)
+			return;
+
+		try {
+			if (!_queue.offer(CLOSE, CLOSE_TIMEOUT, TimeUnit.MILLISECONDS))
+				sender.interrupt();	// the buffer is full and the server is gone- stop waiting for it
+			sender.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * the sender thread- posts batches of buffered records until closed
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		List<HighscoreRecord> batch = new ArrayList<HighscoreRecord>(MAX_BATCH);
+		long retryDelay = MIN_RETRY_DELAY;
+		boolean closed = false;
+		boolean retry = false;		// the batch failed- it is sent again as is (with its id)
+
+		while (!closed || !batch.isEmpty()) {
+			try {
+				if (!closed && !retry) {
+					if (batch.isEmpty())
+						batch.add(_queue.take());
+					closed = fill(batch);
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (batch.isEmpty())
+				continue;
+
+			try {
+				send(batch);
+				batch.clear();
+				retry = false;
+				retryDelay = MIN_RETRY_DELAY;
+			} catch (IOException e) {
+				_failures++;
+				retry = true;
+				disconnect();
+				if (closed || _closing) {
+					System.err.println("score server: " + e.getMessage() + " (" + (batch.size() + _queue.size()) + " records are not sent)");
+					break;
+				}
+
+				// keep the batch, and retry later (new records are buffered meanwhile)
+				System.err.println("score server: " + e.getMessage() + " (retry in " + retryDelay + " ms)");
+				try {
+					Thread.sleep(retryDelay);
+				} catch (InterruptedException interrupted) {
+					break;
+				}
+				retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+			}
+		}
+
+		disconnect();
+	}
+
+	/**
+	 * fill a batch with the buffered records (waiting LINGER for more, if the batch is small)
+	 * @param batch
+	 * @return true if the client was closed
+	 * @throws InterruptedException
+	 */
+	private boolean fill(List<HighscoreRecord> batch) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER);
+
+		while (batch.size() < MAX_BATCH) {
+			_queue.drainTo(batch, MAX_BATCH - batch.size());
+			if (batch.remove(CLOSE))
+				return true;
+
+			long wait = deadline - System.nanoTime();
+			if (batch.size() >= MAX_BATCH || wait <= 0 || _closing)
+				break;
+
+			HighscoreRecord record = _queue.poll(wait, TimeUnit.NANOSECONDS);
+			if (record == CLOSE)
+				return true;
+			if (record != null)
+				batch.add(record);
+		}
+		return false;
+	}
+
+	/**
+	 * post a batch of records (the next batch gets a new id once this one was answered)
+	 * @param batch
+	 * @throws IOException if the server can't be reached (the batch should be retried)
+	 */
+	private void send(List<HighscoreRecord> batch) throws IOException {
+		_body.clear();
+		for (HighscoreRecord record : batch) {
+			HighscoreRecordCodec.encode(record, _body);
+		}
+
+		if (_socket == null)
+			connect();
+
+		String header = "POST " + ScoreServer.SCORES_PATH + " HTTP/1.1\r\n"
+				+ "Host: " + _address.getHostString() + ":" + _address.getPort() + "\r\n"
+				+ "Content-Type: application/octet-stream\r\n"
+				+ "Content-Length: " + _body.position() + "\r\n"
+				+ ScoreServer.BATCH_ID_HEADER + ": " + _clientId + "-" + _batchNumber + "\r\n"
+				+ "\r\n";
+		_output.write(header.getBytes(StandardCharsets.ISO_8859_1));
+		_output.write(_body.array(), 0, _body.position());
+		_output.flush();
+		_requests++;
+
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		int status = readResponse(_input, response);
+		if (status < 500)
+			_batchNumber++;		// answered- the server won't take it again
+
+		if (status == 200) {
+			int accepted = parseAccepted(response, batch.size());
+			_sentRecords += accepted;
+			_rejectedRecords.addAndGet(batch.size() - accepted);
+		} else if (status >= 400 && status < 500) {
+			// the server won't take this batch, ever
+			_rejectedRecords.addAndGet(batch.size());
+			System.err.println("score server rejected " + batch.size() + " records (" + status + ")");
+		} else {
+			throw new IOException("score server error " + status);
+		}
+	}
+
+	/**
+	 * parse the accepted records count of a posted batch
+	 * @param response the response body
+	 * @param records records in the batch
+	 * @return accepted records (all of them if the response is not a count)
+	 */
+	private static int parseAccepted(ByteArrayOutputStream response, int records) {
+		try {
+			int accepted = Integer.parseInt(new String(response.toByteArray(), StandardCharsets.ISO_8859_1).trim());
+			return Math.max(Math.min(accepted, records), 0);
+		} catch (NumberFormatException e) {
+			return records;
+		}
+	}
+
+	/**
+	 * connect to the server
+	 * @throws IOException
+	 */
+	private void connect() throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.connect(_address, TIMEOUT);
+			socket.setSoTimeout(TIMEOUT);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+
+		_socket = socket;
+		_input = new BufferedInputStream(socket.getInputStream());
+		_output = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);	// the header & body in the same packets
+	}
+
+	/**
+	 * close the server connection (it is connected again for the next batch)
+	 */
+	private void disconnect() {
+		if (_socket != null) {
+			try {
+				_socket.close();
+			} catch (IOException e) {
+				// closing anyway
+			}
+			_socket = null;
+		}
+	}
+
+	/**
+	 * read an http response
+	 * @param input
+	 * @param body receives the response body, or null to skip it
+	 * @return status code
+	 * @throws IOException
+	 */
+	private static int readResponse(InputStream input, ByteArrayOutputStream body) throws IOException {
+		String statusLine = readLine(input);
+		String[] parts = statusLine.split(" ");
+		if (parts.length < 2 || !parts[0].startsWith("HTTP/"))
+			throw new IOException("bad response: " + statusLine);
+
+		int contentLength = 0;
+		String line;
+		while (!(line = readLine(input)).isEmpty()) {
+			int colon = line.indexOf(':');
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length"))
+				contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+		}
+
+		byte[] buffer = new byte[Math.min(contentLength, 8192)];
+		while (contentLength > 0) {
+			int read = input.read(buffer, 0, Math.min(buffer.length, contentLength));
+			if (read < 0)
+				throw new IOException("connection closed in a response");
+			if (body != null)
+				body.write(buffer, 0, read);
+			contentLength -= read;
+		}
+
+		try {
+			return Integer.parseInt(parts[1]);
+		} catch (NumberFormatException e) {
+			throw new IOException("bad response: " + statusLine);
+		}
+	}
+
+	/**
+	 * read a response line
+	 * @param input
+	 * @return line, without the "\r\n"
+	 * @throws IOException
+	 */
+	private static String readLine(InputStream input) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = input.read()) != '\n') {
+			if (c < 0)
+				throw new IOException("connection closed in a response");
+			if (c != '\r')
+				line.append((char)c);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * get a level's leaderboard from the server (on the caller's thread, with a connection of its own)
+	 * @param level level key
+	 * @param count maximum records
+	 * @return a line for every record: rank, player name, time and 3BV/s, separated by tabs
+	 * @throws IOException
+	 */
+	public List<String> getLeaderboard(String level, int count) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(_address, TIMEOUT);
+			socket.setSoTimeout(TIMEOUT);
+
+			String request = "GET " + ScoreServer.LEADERBOARD_PATH + "?level=" + URLEncoder.encode(level, "UTF-8") + "&count=" + count + " HTTP/1.1\r\n"
+					+ "Host: " + _address.getHostString() + ":" + _address.getPort() + "\r\n"
+					+ "Connection: close\r\n"
+					+ "\r\n";
+			socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			int status = readResponse(new BufferedInputStream(socket.getInputStream()), body);
+			String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+			if (status != 200)
+				throw new IOException("score server error " + status + ": " + text);
+			return text.isEmpty() ? new ArrayList<String>() : Arrays.asList(text.split("\n"));
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * get the number of records the server accepted
+	 * @return sent records
+	 */
+	public long getSentRecords() {
+		return _sentRecords;
+	}
+
+	/**
+	 * get the number of rejected records (which can't be ranked, or were rejected by the server)
+	 * @return rejected records
+	 */
+	public long getRejectedRecords() {
+		return _rejectedRecords.get();
+	}
+
+	/**
+	 * get the number of records dropped because the buffer was full
+	 * @return dropped records
+	 */
+	public long getDroppedRecords() {
+		return _droppedRecords.get();
+	}
+
+	/**
+	 * get the number of posted batches
+	 * @return requests
+	 */
+	public long getRequests() {
+		return _requests;
+	}
+
+	/**
+	 * get the number of failed posts (retried)
+	 * @return failures
+	 */
+	public long getFailures() {
+		return _failures;
+	}
+}
@@ -0,0 +1,630 @@
+package minesweeper.server;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import minesweeper.model.HighscoreRecord;
+import minesweeper.model.HighscoresSource;
+import minesweeper.model.Leaderboard;
+import minesweeper.model.store.HighscoreRecordCodec;
+
+/**
+ *  Score Server- a small embedded HTTP server which collects the highscores of many game instances.
+ *  a single thread serves all the connections with a NIO selector (keep-alive and pipelined requests),
+ *  and it is the only thread which touches the leaderboards, so nothing is locked.
+ *  POST /scores- a batch of records, as {@link HighscoreRecordCodec} frames one after the other.
+ *  a batch with a damaged frame is rejected as a whole (400), and a record which can't be ranked (see {@link #isValid})
+ *  is skipped- the response is the accepted records count.
+ *  a batch with a Batch-Id header which was already accepted (a retry of a post whose response was lost) is not
+ *  ingested again- the response is the count it was accepted with. the last MAX_BATCH_IDS ids are kept, in memory only.
+ *  GET /leaderboard?level=KEY[&from=RANK][&count=N][&bests=true]- the leaderboard of a level (or the best record of every player),
+ *  a line for every record: rank, player name, time and 3BV/s, separated by tabs.
+ *  GET /levels- the levels keys, a line for every level.
+ *  the records are saved to a {@link HighscoresSource}, and the leaderboards keep their sequence numbers only.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class ScoreServer implements Runnable {
+	public static final String SCORES_PATH = "/scores";
+	public static final String LEADERBOARD_PATH = "/leaderboard";
+	public static final String LEVELS_PATH = "/levels";
+	public static final int MAX_BODY_SIZE = 4 << 20;	// bytes of a request body
+	public static final String BATCH_ID_HEADER = "Batch-Id";	// a client's id of a posted batch (kept when it is retried)
+	private static final int MAX_BATCH_IDS = 65536;		// accepted batch ids kept for finding retries
+	private static final int MAX_BATCH_ID_LENGTH = 100;
+	private static final int MAX_HEADER_SIZE = 8192;	// bytes of a request line & headers
+	private static final int BUFFER_SIZE = 64 * 1024;	// initial connection buffers size
+	private static final int DEFAULT_COUNT = 10;		// leaderboard records by default
+	private static final int MAX_COUNT = 1000;			// leaderboard records in a single response
+	private static final long CLOSE_TIMEOUT = 5000;		// milliseconds to wait for the server thread on close
+
+	private HighscoresSource _source;
+	private Map<String, Leaderboard> _leaderboards = new LinkedHashMap<String, Leaderboard>();
+	private List<HighscoreRecord> _batch = new ArrayList<HighscoreRecord>();	// the records of the ingested request
+	private Map<String, Integer> _batchIds = new LinkedHashMap<String, Integer>(16, 0.75f, true) {	// accepted records by batch id (least recent first)
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+			return size() > MAX_BATCH_IDS;
+		}
+	};
+	private Selector _selector;
+	private ServerSocketChannel _serverChannel;
+	private Thread _thread;
+	private volatile boolean _closed;
+
+	// statistics
+	private volatile long _requests;
+	private volatile long _batches;
+	private volatile long _acceptedRecords;
+	private volatile long _rejectedBatches;
+	private volatile long _rejectedRecords;
+	private volatile long _duplicateBatches;
+
+	/**
+	 *  Connection- the buffers of a client connection
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class Connection {
+		private ByteBuffer _input = ByteBuffer.allocate(BUFFER_SIZE);	// received bytes (write mode)
+		private ByteBuffer _output = ByteBuffer.allocate(BUFFER_SIZE);	// responses to send (write mode)
+		private int _requestSize;		// size of the incomplete request at the buffer's start, if its header was read
+		private boolean _closeAfterWrite;
+	}
+
+	/**
+	 * open the server socket
+	 * @param source where the records are saved
+	 * @param address local address (port 0 for any free port)
+	 * @throws IOException
+	 */
+	public ScoreServer(HighscoresSource source, InetSocketAddress address) throws IOException {
+		_source = source;
+		_selector = Selector.open();
+		_serverChannel = ServerSocketChannel.open();
+		_serverChannel.bind(address);
+		_serverChannel.configureBlocking(false);
+		_serverChannel.register(_selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * add a saved record to its level's leaderboard (when the records are loaded, before the server is started)
+	 * @param sequence the record's sequence number in the source
+	 * @param record
+	 */
+	public void index(long sequence, HighscoreRecord record) {
+		Leaderboard leaderboard = _leaderboards.get(record.getLevelKey());
+		if (leaderboard == null) {
+			leaderboard = new Leaderboard(record.getLevelKey());
+			_leaderboards.put(record.getLevelKey(), leaderboard);
+		}
+		leaderboard.add(sequence, record);
+	}
+
+	/**
+	 * get the port the server listens on
+	 * @return port
+	 */
+	public int getPort() {
+		return _serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * start the server thread
+	 */
+	public synchronized void start() {
+		if (_thread == null) {
+			_thread = new Thread(this, "Score Server");
+			_thread.setDaemon(true);
+			_thread.start();
+		}
+	}
+
+	/**
+	 * stop the server thread, and close all the connections
+	 */
+	public void close() {
+		_closed = true;
+		_selector.wakeup();
+
+		Thread thread;
+		synchronized (this) {
+			thread = _thread;
+		}
+		if (thread == null)
+			return;
+
+		try {
+			thread.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * the server thread- serves the connections until closed
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (!_closed) {
+				_selector.select();
+
+				Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					try {
+						if (key.isAcceptable()) {
+							accept();
+						} else {
+							if (key.isReadable())
+								read(key);
+							if (key.isValid() && key.isWritable())
+								write(key);
+						}
+					} catch (IOException e) {
+						closeChannel(key);	// the client is gone
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		} finally {
+			for (SelectionKey key : _selector.keys()) {
+				closeChannel(key);
+			}
+			try {
+				_selector.close();
+			} catch (IOException e) {
+				System.err.println(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * close a connection (or the server socket)
+	 * @param key
+	 */
+	private static void closeChannel(SelectionKey key) {
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+	/**
+	 * accept the waiting connections
+	 * @throws IOException
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = _serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.register(_selector, SelectionKey.OP_READ, new Connection());
+		}
+	}
+
+	/**
+	 * read from a connection, and handle its complete requests
+	 * @param key
+	 * @throws IOException
+	 */
+	private void read(SelectionKey key) throws IOException {
+		Connection connection = (Connection)key.attachment();
+		SocketChannel channel = (SocketChannel)key.channel();
+
+		if (channel.read(connection._input) < 0) {
+			channel.close();
+			return;
+		}
+
+		// handle the complete requests (pipelined requests are handled together)
+		ByteBuffer input = connection._input;
+		input.flip();
+		while (!connection._closeAfterWrite && handleRequest(connection, input)) {
+			_requests++;
+		}
+		input.compact();
+
+		// make room for an incomplete request
+		if (connection._requestSize > input.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(connection._requestSize);
+			input.flip();
+			larger.put(input);
+			connection._input = larger;
+		}
+
+		if (connection._output.position() > 0)
+			write(key);
+	}
+
+	/**
+	 * send the responses of a connection
+	 * @param key
+	 * @throws IOException
+	 */
+	private void write(SelectionKey key) throws IOException {
+		Connection connection = (Connection)key.attachment();
+		SocketChannel channel = (SocketChannel)key.channel();
+
+		ByteBuffer output = connection._output;
+		output.flip();
+		channel.write(output);
+		output.compact();
+
+		if (output.position() > 0) {
+			// the rest when the socket can take it (and no more requests if the connection is closing)
+			key.interestOps(connection._closeAfterWrite ? SelectionKey.OP_WRITE : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		} else if (connection._closeAfterWrite) {
+			channel.close();
+		} else {
+			key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * handle the request at the buffer's position, if it is complete
+	 * @param connection
+	 * @param input received bytes (read mode)
+	 * @return true if a request was handled (the position is moved after it), false if it is incomplete
+	 */
+	private boolean handleRequest(Connection connection, ByteBuffer input) {
+		connection._requestSize = 0;
+		int start = input.position();
+		int headerEnd = findHeaderEnd(input);
+		if (headerEnd < 0) {
+			if (input.remaining() >= MAX_HEADER_SIZE) {
+				respond(connection, 431, "request header is too large");
+				connection._closeAfterWrite = true;
+			}
+			return false;
+		}
+
+		// request line & headers
+		String[] lines = new String(input.array(), input.arrayOffset() + start, headerEnd - start, StandardCharsets.ISO_8859_1).split("\r\n");
+		String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3) {
+			respond(connection, 400, "bad request line");
+			connection._closeAfterWrite = true;
+			return false;
+		}
+
+		int contentLength = 0;
+		String batchId = null;
+		boolean keepAlive = !requestLine[2].equals("HTTP/1.0");
+		for (int i = 1; i < lines.length; i++) {
+			int colon = lines[i].indexOf(':');
+			if (colon < 0)
+				continue;
+
+			String name = lines[i].substring(0, colon).trim();
+			String value = lines[i].substring(colon + 1).trim();
+			if (name.equalsIgnoreCase("Content-Length")) {
+				try {
+					contentLength = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					contentLength = -1;
+				}
+			} else if (name.equalsIgnoreCase(BATCH_ID_HEADER)) {
+				batchId = (value.length() <= MAX_BATCH_ID_LENGTH) ? value : null;
+			} else if (name.equalsIgnoreCase("Connection")) {
+				keepAlive = value.equalsIgnoreCase("keep-alive") || (keepAlive && !value.equalsIgnoreCase("close"));
+			}
+		}
+
+		if (contentLength < 0 || contentLength > MAX_BODY_SIZE) {
+			respond(connection, 413, "request body is too large (" + MAX_BODY_SIZE + " bytes at most)");
+			connection._closeAfterWrite = true;
+			return false;
+		}
+
+		int bodyStart = headerEnd + 4;
+		if (input.limit() - bodyStart < contentLength) {
+			connection._requestSize = bodyStart + contentLength - start;	// wait for the rest of the body
+			return false;
+		}
+
+		// a complete request
+		ByteBuffer body = input.duplicate();
+		body.limit(bodyStart + contentLength).position(bodyStart);
+		input.position(bodyStart + contentLength);
+		connection._closeAfterWrite = !keepAlive;
+
+		String method = requestLine[0];
+		String target = requestLine[1];
+		int question = target.indexOf('?');
+		String path = (question < 0) ? target : target.substring(0, question);
+		Map<String, String> query = parseQuery((question < 0) ? "" : target.substring(question + 1));
+
+		if (path.equals(SCORES_PATH)) {
+			if (method.equals("POST"))
+				ingest(connection, body, batchId);
+			else
+				respond(connection, 405, "use POST");
+		} else if (path.equals(LEADERBOARD_PATH) || path.equals(LEVELS_PATH)) {
+			if (!method.equals("GET"))
+				respond(connection, 405, "use GET");
+			else if (path.equals(LEVELS_PATH))
+				respond(connection, 200, getLevels());
+			else
+				respondLeaderboard(connection, query);
+		} else {
+			respond(connection, 404, "no such path: " + path);
+		}
+		return true;
+	}
+
+	/**
+	 * find the end of the request header (the empty line after it)
+	 * @param input received bytes (read mode)
+	 * @return position of the "\r\n\r\n", or -1 if it was not received yet
+	 */
+	private static int findHeaderEnd(ByteBuffer input) {
+		int end = Math.min(input.limit(), input.position() + MAX_HEADER_SIZE);
+		for (int i = input.position(); i + 3 < end; i++) {
+			if (input.get(i) == '\r' && input.get(i + 1) == '\n' && input.get(i + 2) == '\r' && input.get(i + 3) == '\n')
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * parse a query string
+	 * @param query name=value pairs, separated by '&'
+	 * @return values by names
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> values = new HashMap<String, String>();
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals <= 0)
+				continue;
+			try {
+				values.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+				// a malformed value- ignored
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * check if a record can be ranked on a leaderboard- it has a time and a 3BV (the clients check it before sending)
+	 * @param record
+	 * @return true if valid
+	 */
+	public static boolean isValid(HighscoreRecord record) {
+		return record.getElapsedTime() > 0 && record.getBoardValue() > 0;
+	}
+
+	/**
+	 * ingest the valid records of a batch (none if a frame is damaged), unless it was already accepted
+	 * @param connection
+	 * @param body record frames
+	 * @param batchId the client's batch id, or null if it has none
+	 */
+	private void ingest(Connection connection, ByteBuffer body, String batchId) {
+		Integer accepted = (batchId == null) ? null : _batchIds.get(batchId);
+		if (accepted != null) {
+			_duplicateBatches++;
+			respond(connection, 200, accepted.toString());	// a retry- the batch was ingested
+			return;
+		}
+
+		_batch.clear();
+		int invalid = 0;
+		for (int frame = 0; body.hasRemaining(); frame++) {
+			HighscoreRecord record = null;
+			if (HighscoreRecordCodec.check(body) == HighscoreRecordCodec.FRAME_OK)
+				record = HighscoreRecordCodec.decode(body);
+
+			if (record == null) {
+				// the frames after a damaged one can't be trusted
+				_rejectedBatches++;
+				respond(connection, 400, "damaged record " + frame + " (no record of the batch was accepted)");
+				return;
+			}
+
+			if (isValid(record))
+				_batch.add(record);
+			else
+				invalid++;
+		}
+
+		for (HighscoreRecord record : _batch) {
+			index(_source.save(record), record);
+		}
+
+		if (batchId != null)
+			_batchIds.put(batchId, _batch.size());
+		_acceptedRecords += _batch.size();
+		_rejectedRecords += invalid;
+		_batches++;
+		respond(connection, 200, Integer.toString(_batch.size()));
+	}
+
+	/**
+	 * get the levels list
+	 * @return levels keys, a line for every level
+	 */
+	private String getLevels() {
+		StringBuilder levels = new StringBuilder();
+		for (String level : _leaderboards.keySet()) {
+			levels.append(level).append('\n');
+		}
+		return levels.toString();
+	}
+
+	/**
+	 * respond with a level's leaderboard
+	 * @param connection
+	 * @param query level, from (rank, 1 for the first), count, bests (true for the personal bests)
+	 */
+	private void respondLeaderboard(Connection connection, Map<String, String> query) {
+		String level = query.get("level");
+		Leaderboard leaderboard = (level == null) ? null : _leaderboards.get(level);
+		if (leaderboard == null) {
+			respond(connection, 404, "no such level: " + level);
+			return;
+		}
+
+		int from, count;
+		try {
+			from = query.containsKey("from") ? Integer.parseInt(query.get("from")) - 1 : 0;
+			count = query.containsKey("count") ? Math.min(Integer.parseInt(query.get("count")), MAX_COUNT) : DEFAULT_COUNT;
+		} catch (NumberFormatException e) {
+			respond(connection, 400, "bad from or count");
+			return;
+		}
+
+		boolean bests = Boolean.parseBoolean(query.get("bests"));
+		int[] personalBests = bests ? leaderboard.getPersonalBests(Leaderboard.ORDER_RANK) : null;
+		int rows = bests ? personalBests.length : leaderboard.size();
+
+		StringBuilder lines = new StringBuilder();
+		for (int row = Math.max(from, 0); row < Math.min(from + count, rows); row++) {
+			int entry = bests ? personalBests[row] : leaderboard.getEntry(row);
+			HighscoreRecord record = _source.read(leaderboard.getSequence(entry));
+			lines.append(bests ? leaderboard.getRank(entry) : row + 1).append('\t');
+			lines.append(leaderboard.getPlayerName(entry)).append('\t');
+			if (record != null)
+				lines.append(record.getTime()).append('\t').append(String.format("%.2f", record.getScore()));
+			else
+				lines.append("?\t?");	// damaged
+			lines.append('\n');
+		}
+		respond(connection, 200, lines.toString());
+	}
+
+	/**
+	 * queue a response on a connection
+	 * @param connection
+	 * @param status http status code
+	 * @param text response body (plain text)
+	 */
+	private void respond(Connection connection, int status, String text) {
+		byte[] body = text.getBytes(StandardCharsets.UTF_8);
+		String header = "HTTP/1.1 " + status + " " + getReason(status) + "\r\n"
+				+ "Content-Type: text/plain; charset=utf-8\r\n"
+				+ "Content-Length: " + body.length + "\r\n"
+				+ (connection._closeAfterWrite ? "Connection: close\r\n" : "")
+				+ "\r\n";
+		byte[] headerBytes = header.getBytes(StandardCharsets.ISO_8859_1);
+
+		ByteBuffer output = connection._output;
+		if (output.remaining() < headerBytes.length + body.length) {
+			ByteBuffer larger = ByteBuffer.allocate(output.position() + headerBytes.length + body.length + BUFFER_SIZE);
+			output.flip();
+			larger.put(output);
+			connection._output = output = larger;
+		}
+		output.put(headerBytes).put(body);
+	}
+
+	/**
+	 * get the reason phrase of a status code
+	 * @param status
+	 * @return reason
+	 */
+	private static String getReason(int status) {
+		switch (status) {
+		case 200:
+			return "OK";
+		case 400:
+			return "Bad Request";
+		case 404:
+			return "Not Found";
+		case 405:
+			return "Method Not Allowed";
+		case 413:
+			return "Payload Too Large";
+		case 431:
+			return "Request Header Fields Too Large";
+		default:
+			return "Error";
+		}
+	}
+
+	/**
+	 * get the CPU time of the server thread (the server uses a single core)
+	 * @return nanoseconds, or -1 if the platform can't measure it
+	 */
+	public long getCpuTime() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (_thread == null || !threads.isThreadCpuTimeSupported())
+			return -1;
+		return threads.getThreadCpuTime(_thread.getId());
+	}
+
+	/**
+	 * get the number of handled requests
+	 * @return requests
+	 */
+	public long getRequests() {
+		return _requests;
+	}
+
+	/**
+	 * get the number of accepted batches
+	 * @return batches
+	 */
+	public long getBatches() {
+		return _batches;
+	}
+
+	/**
+	 * get the number of accepted records
+	 * @return accepted records
+	 */
+	public long getAcceptedRecords() {
+		return _acceptedRecords;
+	}
+
+	/**
+	 * get the number of skipped records which can't be ranked (in accepted batches)
+	 * @return rejected records
+	 */
+	public long getRejectedRecords() {
+		return _rejectedRecords;
+	}
+
+	/**
+	 * get the number of rejected batches (with a damaged record)
+	 * @return rejected batches
+	 */
+	public long getRejectedBatches() {
+		return _rejectedBatches;
+	}
+
+	/**
+	 * get the number of retried batches which were accepted before (and were not ingested again)
+	 * @return duplicate batches
+	 */
+	public long getDuplicateBatches() {
+		return _duplicateBatches;
+	}
+}
@@ -15,7 +15,7 @@ import java.awt.event.WindowEvent;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
-import minesweeper.views.components.MinefieldPanel;
+import minesweeper.views.components.MinefieldComponent;
 
 /**
  *  Application Window
@@ -42,7 +42,7 @@ public class AppWindow extends JFrame {
 	 * create new application window
 	 * @param minefieldPanel	game panel, for instantiate {@link GameView} object
 	 */
-	public AppWindow(MinefieldPanel minefieldPanel) {
+	public AppWindow(MinefieldComponent minefieldPanel) {
 		_gameView = new GameView(minefieldPanel);
 		
 		// set basic UI parameters
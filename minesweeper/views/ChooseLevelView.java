@@ -11,6 +11,7 @@ import java.awt.event.MouseListener;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSpinner;
@@ -34,6 +35,7 @@ public class ChooseLevelView extends JPanel {
 	// UI properties (static final for performance issues)
 	private static final Color TEXT_COLOR = Color.white;
 	private static final Font TEXT_FONT = AssetsManager.getBaseFont().deriveFont(Font.PLAIN, 14);
+	private static final int CUSTOM_MAX_SIZE = 1000;	// maximum custom board width & height
 	
 	// View Components
 	private Image _background;
@@ -46,6 +48,8 @@ public class ChooseLevelView extends JPanel {
 	private JSpinner _heightSpinner;
 	private JSpinner _widthSpinner;
 	private JSpinner _minesSpinner;
+	private JCheckBox _canvasCheckBox;
+	private JCheckBox _noGuessCheckBox;
 	private JButton _startCustomButton;
 	
 	/**
@@ -92,13 +96,13 @@ public class ChooseLevelView extends JPanel {
 		// Custom Level Panel
 		_customSpinnersPanel = new JPanel();
 		_widthSpinner = new JSpinner();
-		_widthSpinner.setModel(new SpinnerNumberModel(9, 9, 30, 1));
+		_widthSpinner.setModel(new SpinnerNumberModel(9, 9, CUSTOM_MAX_SIZE, 1));
 		_customSpinnersPanel.add(_widthSpinner);
 		JLabel xLabel = new JLabel(" x ");
 		xLabel.setFont(TEXT_FONT);
 		_customSpinnersPanel.add(xLabel);
 		_heightSpinner = new JSpinner();
-		_heightSpinner.setModel(new SpinnerNumberModel(9, 9, 30, 1));
+		_heightSpinner.setModel(new SpinnerNumberModel(9, 9, CUSTOM_MAX_SIZE, 1));
 		_customSpinnersPanel.add(_heightSpinner);
 		JLabel withLabel = new JLabel(" with ");
 		withLabel.setFont(TEXT_FONT);
@@ -109,10 +113,20 @@ public class ChooseLevelView extends JPanel {
 		JLabel minesLabel = new JLabel(" mines ");
 		minesLabel.setFont(TEXT_FONT);
 		_customSpinnersPanel.add(minesLabel);
+		_canvasCheckBox = new JCheckBox("Fast board");
+		_canvasCheckBox.setFont(TEXT_FONT);
+		_canvasCheckBox.setOpaque(false);
+		_customSpinnersPanel.add(_canvasCheckBox);
 		_startCustomButton = new JButton("Start");
 		_customSpinnersPanel.add(_startCustomButton);
 		_customPanel = new LevelPanel(Level.customEmpty(), LevelPanel.HORIZONTAL_PANEL, _customSpinnersPanel);
 		
+		// no guessing mode (for all the levels)
+		_noGuessCheckBox = new JCheckBox("No guessing");
+		_noGuessCheckBox.setFont(TEXT_FONT);
+		_noGuessCheckBox.setForeground(TEXT_COLOR);
+		_noGuessCheckBox.setOpaque(false);
+		
 		// View Layout
 		setLayout(new GridBagLayout());
 		GridBagConstraints viewConstraints = new GridBagConstraints();
@@ -133,6 +147,9 @@ public class ChooseLevelView extends JPanel {
 		viewConstraints.gridy = 1;
 		viewConstraints.gridwidth = 3;
 		add(_customPanel, viewConstraints);			// add custom level panel
+		
+		viewConstraints.gridy = 2;
+		add(_noGuessCheckBox, viewConstraints);		// add no guessing check box
 	}
 	
 	/**
@@ -202,6 +219,22 @@ public class ChooseLevelView extends JPanel {
 		return (Integer)_widthSpinner.getValue();
 	}
 	
+	/**
+	 * check if the custom level board should be painted as a single canvas ("Fast board" check box)
+	 * @return true for a canvas board, false for a field buttons grid
+	 */
+	public boolean isCustomCanvasRendering() {
+		return _canvasCheckBox.isSelected();
+	}
+	
+	/**
+	 * check if the chosen level should be solvable without guessing ("No guessing" check box)
+	 * @return true for no guessing boards, false for random boards
+	 */
+	public boolean isNoGuess() {
+		return _noGuessCheckBox.isSelected();
+	}
+	
 	/**
 	 * add custom level listener- mouse click on "Start Custom Game" button
 	 * @param customLevelListener
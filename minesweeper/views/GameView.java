@@ -1,5 +1,6 @@
 package minesweeper.views;
 
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
@@ -8,19 +9,24 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Image;
 import java.awt.Insets;
+import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
 
 import minesweeper.controllers.GameTimer;
+import minesweeper.model.CellChanges;
 import minesweeper.views.components.FieldButton;
-import minesweeper.views.components.MinefieldPanel;
+import minesweeper.views.components.MinefieldComponent;
+import minesweeper.views.components.MinefieldMinimap;
 import minesweeper.views.fx.SoundPlayer;
 import minesweeper.views.utils.AssetsManager;
 
@@ -34,18 +40,26 @@ public class GameView extends JPanel {
 	
 	// UI properties (static final for performance issues)
 	private static final Font TEXT_FONT = AssetsManager.getBaseFont().deriveFont(Font.PLAIN, 24);
+	private static final Font STATUS_FONT = AssetsManager.getBaseFont().deriveFont(Font.PLAIN, 14);
+	private static final String GENERATING_STATUS = "Generating the board...";
 	private static final ImageIcon PAUSE_ICON = new ImageIcon(AssetsManager.getResource(GameView.class, "pause.png"));
 	private static final ImageIcon SPEAKER_ON_ICON = new ImageIcon(AssetsManager.getResource(GameView.class, "speaker_on.png"));
 	private static final ImageIcon SPEAKER_OFF_ICON = new ImageIcon(AssetsManager.getResource(GameView.class, "speaker_off.png"));
 	private static final Image DEFAULT_BACKGROUND =  new ImageIcon(AssetsManager.getResource(GameView.class, "bg.jpg")).getImage();
+	private static final Dimension SCREEN_MARGIN = new Dimension(250, 200);	// screen space around the board (buttons panel, labels, insets)
 	
 	// View Components
-	private MinefieldPanel _minefieldPanel;
+	private MinefieldComponent _minefieldPanel;
+	private JComponent _boardView;			// the board, or a scroll pane around it if it is larger than the screen
+	private MinefieldMinimap _minimap;		// overview of a scrolling board
+	private JPanel _leftPanel = new JPanel();
 	private JLabel _timeLabel = new JLabel("");
 	private JLabel _flagsIcon = new JLabel();
 	private JLabel _flagsLabel = new JLabel("");
+	private JLabel _statusLabel = new JLabel("");	// a line under the board, for notes about the current game
 	private JPanel _minefieldPanelHolder = new JPanel();
 	private JButton _pauseButton = new JButton(PAUSE_ICON);
+	private JButton _hintButton = new JButton("?");
 	private Image _background;
 
 	/*
@@ -62,7 +76,7 @@ public class GameView extends JPanel {
 	 * create new {@link GameView} view object for a given minefield panel
 	 * @param minefieldPanel game board
 	 */
-	public GameView(MinefieldPanel minefieldPanel) {
+	public GameView(MinefieldComponent minefieldPanel) {
 		_minefieldPanelHolder.setOpaque(false); // transparent minefield panel
 		_minefieldPanel = minefieldPanel;
 		initializeUI();
@@ -80,7 +94,7 @@ public class GameView extends JPanel {
 	    
 	    // time & flags labels
 		_timeLabel.setFont(TEXT_FONT);
-		_timeLabel.setPreferredSize(new Dimension(120, 10));
+		_timeLabel.setPreferredSize(new Dimension(150, 10));
 		_flagsLabel.setFont(TEXT_FONT);
 		
 		// view layout
@@ -90,10 +104,9 @@ public class GameView extends JPanel {
 		viewConstraints.insets = new Insets(0, 0, 0, 30);
 		
 		// buttons panel (LEFT SIDE)
-		JPanel leftPanel = new JPanel();
-		leftPanel.setOpaque(false);	// transparent panel
-		leftPanel.setLayout(new BoxLayout(leftPanel, BoxLayout.Y_AXIS));
-		leftPanel.add(_pauseButton);
+		_leftPanel.setOpaque(false);	// transparent panel
+		_leftPanel.setLayout(new BoxLayout(_leftPanel, BoxLayout.Y_AXIS));
+		_leftPanel.add(_pauseButton);
 		JToggleButton speakerButton = new JToggleButton(SPEAKER_ON_ICON);
 		speakerButton.setOpaque(false);
 	    speakerButton.setContentAreaFilled(false);
@@ -105,8 +118,15 @@ public class GameView extends JPanel {
 				SoundPlayer.toggleSound();
 			}
 		});
-		leftPanel.add(speakerButton, viewConstraints);
-		add(leftPanel, viewConstraints);	// add the left panel to the view
+		_leftPanel.add(speakerButton, viewConstraints);
+		_hintButton.setFont(TEXT_FONT);
+		_hintButton.setToolTipText("Hint");
+		_hintButton.setOpaque(false);
+		_hintButton.setContentAreaFilled(false);
+		_hintButton.setBorderPainted(false);
+		_hintButton.setFocusable(false);
+		_leftPanel.add(_hintButton, viewConstraints);
+		add(_leftPanel, viewConstraints);	// add the left panel to the view
 		
 		
 		// game panel (RIGHT SIDE)
@@ -138,6 +158,12 @@ public class GameView extends JPanel {
 		rightConstraints.gridwidth = 2;
 		rightPanel.add(_minefieldPanelHolder, rightConstraints);
 		
+		// status line under the board
+		_statusLabel.setFont(STATUS_FONT);
+		rightConstraints.gridy = 2;
+		rightConstraints.anchor = GridBagConstraints.LINE_START;
+		rightPanel.add(_statusLabel, rightConstraints);
+		
 		add(rightPanel);	// add the right panel to the view
 	}
 	
@@ -165,6 +191,8 @@ public class GameView extends JPanel {
 		// set labels foreground color
 		_flagsLabel.setForeground(AssetsManager.getCurrentLevelForegroundColor());
 		_timeLabel.setForeground(AssetsManager.getCurrentLevelForegroundColor());
+		_statusLabel.setForeground(AssetsManager.getCurrentLevelForegroundColor());
+		_hintButton.setForeground(AssetsManager.getCurrentLevelForegroundColor());
 	}
 
 	/**
@@ -184,12 +212,34 @@ public class GameView extends JPanel {
 	}
 
 	/**
-	 * open field in the game
-	 * @param row
-	 * @param col
+	 * set the status line under the board
+	 * @param status status text, or "" to clear it
+	 */
+	public void setStatus(String status) {
+		_statusLabel.setText(status);
+	}
+
+	/**
+	 * show (or clear) the generating state- the board is searched before the first open is shown
+	 * @param generating true while the board is generated
 	 */
-	public void openField(int row, int col) {
-		_minefieldPanel.openField(row, col);
+	public void setGenerating(boolean generating) {
+		_boardView.setCursor(generating ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+		setStatus(generating ? GENERATING_STATUS : "");
+	}
+
+	/**
+	 * update the fields changed by a single move
+	 * @see MinefieldComponent#updateFields(CellChanges, boolean)
+	 * @param changes changed cells
+	 * @param reveal true to open all the changed fields (game over)
+	 */
+	public void updateFields(CellChanges changes, boolean reveal) {
+		if (changes.size() > 0)
+			_minefieldPanel.clearHint();	// the hint is for the previous board
+		_minefieldPanel.updateFields(changes, reveal);
+		if (_minimap != null)
+			_minimap.updateFields(changes);
 	}
 	
 	/**
@@ -200,36 +250,67 @@ public class GameView extends JPanel {
 		_pauseButton.addActionListener(pauseListener);
 	}
 
+	/**
+	 * set hint button listener
+	 * @param hintListener
+	 */
+	public void setHintListener(ActionListener hintListener) {
+		_hintButton.addActionListener(hintListener);
+	}
+
 	/**
 	 * redraw the minefield panel.
 	 * removes the old board and replace it with a new game board
+	 * a board larger than the screen is placed in a scroll pane, with a minimap in the left panel
 	 * updates the flag icon for the current level 
 	 * @param minefieldPanel
 	 */
-	public void redrawMinefieldPanel(MinefieldPanel minefieldPanel) {
+	public void redrawMinefieldPanel(MinefieldComponent minefieldPanel) {
 		_minefieldPanel = minefieldPanel;
 		_minefieldPanelHolder.removeAll();
-		_minefieldPanelHolder.add(_minefieldPanel);
-		_flagsIcon.setIcon(new ImageIcon(AssetsManager.getResource(FieldButton.class, AssetsManager.getCurrentLevelPrefix() + "_flag.png")));
+		if (_minimap != null) {
+			_leftPanel.remove(_minimap);
+			_minimap = null;
+		}
+		
+		Dimension boardSize = minefieldPanel.getPreferredSize();
+		Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+		Dimension maxSize = new Dimension(screenSize.width - SCREEN_MARGIN.width, screenSize.height - SCREEN_MARGIN.height);
+		
+		if (boardSize.width > maxSize.width || boardSize.height > maxSize.height) {
+			// scrolling board- only the visible fields are painted
+			JScrollPane scrollPane = new JScrollPane(minefieldPanel);
+			scrollPane.setBorder(null);
+			scrollPane.setPreferredSize(new Dimension(Math.min(boardSize.width, maxSize.width), Math.min(boardSize.height, maxSize.height)));
+			scrollPane.getHorizontalScrollBar().setUnitIncrement(FieldButton.BUTTON_SIZE.width);
+			scrollPane.getVerticalScrollBar().setUnitIncrement(FieldButton.BUTTON_SIZE.height);
+			_boardView = scrollPane;
+			
+			_minimap = new MinefieldMinimap(minefieldPanel.getMinefield(), scrollPane.getViewport());
+			_leftPanel.add(_minimap);
+		} else {
+			_boardView = minefieldPanel;
+		}
+		
+		_minefieldPanelHolder.add(_boardView);
+		_flagsIcon.setIcon(AssetsManager.getLevelTileIcon(FieldButton.class, "_flag.png"));
 		_minefieldPanelHolder.updateUI();
 		repaint();
 	}
 	
 	/**
 	 * get the minefield panel (the board)
-	 * @return {@link MinefieldPanel} object which contains the game board
+	 * @return {@link MinefieldComponent} object which contains the game board
 	 */
-	public MinefieldPanel getMinefieldPanel() {
+	public MinefieldComponent getMinefieldPanel() {
 		return _minefieldPanel;
 	}
-
+	
 	/**
-	 * get field button for a given row & column
-	 * @param row button row
-	 * @param col button column
-	 * @return {@link FieldButton} object which is placed in the given row & column
+	 * get the board view- the minefield panel, or the scroll pane which contains it
+	 * @return board view component
 	 */
-	public FieldButton getField(int row, int col) {
-		return _minefieldPanel.getField(row, col);
+	public JComponent getBoardView() {
+		return _boardView;
 	}
 }
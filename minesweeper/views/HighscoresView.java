@@ -1,6 +1,5 @@
 package minesweeper.views;
 
-import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
@@ -9,13 +8,20 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Image;
 import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseListener;
+import java.util.List;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTable;
 
 import minesweeper.model.Highscores;
@@ -30,6 +36,7 @@ public class HighscoresView extends JPanel {
 	private static final Font HEADER_FONT = AssetsManager.getBaseFont().deriveFont(Font.PLAIN, 24);
 	private static final Font TITLE_FONT = AssetsManager.getBaseFont().deriveFont(Font.PLAIN, 36);
 	private static final Color TITLE_COLOR = Color.white;
+	private static final int VISIBLE_ROWS = 10;		// rows shown without scrolling
 	private static final ImageIcon BACK_BUTTON_ICON = new ImageIcon(AssetsManager.getResource(HighscoresView.class, "back.png"));
 	private static final Image BACKGROUND_IMAGE = new ImageIcon(AssetsManager.getResource(HighscoresView.class, "bg.jpg")).getImage();
 	
@@ -37,6 +44,8 @@ public class HighscoresView extends JPanel {
 	private JTable _dataTable;
 	private Highscores _highscores;
 	private JButton _backButton = new JButton(BACK_BUTTON_ICON);
+	private JComboBox<String> _levelComboBox = new JComboBox<String>();
+	private JCheckBox _personalBestsCheckBox = new JCheckBox("Personal bests");
 	
 	/**
 	 * create new {@link HighscoresView} view object
@@ -100,6 +109,20 @@ public class HighscoresView extends JPanel {
 		
 		rightConstraints.insets = new Insets(0, 0, 10, 0);
 		
+		// level & personal bests selection
+		JPanel filterPanel = new JPanel();
+		filterPanel.setOpaque(false);
+		_levelComboBox.setFont(TEXT_FONT);
+		_levelComboBox.setFocusable(false);
+		_personalBestsCheckBox.setFont(TEXT_FONT);
+		_personalBestsCheckBox.setForeground(TITLE_COLOR);
+		_personalBestsCheckBox.setOpaque(false);
+		_personalBestsCheckBox.setFocusable(false);
+		filterPanel.add(_levelComboBox);
+		filterPanel.add(_personalBestsCheckBox);
+		rightConstraints.gridy = 1;
+		rightPanel.add(filterPanel, rightConstraints);
+		
 		// data table UI configuration (to be transparent, not focusable, etc.
 		_dataTable.setShowHorizontalLines(false);
 		_dataTable.setShowVerticalLines(false);
@@ -115,20 +138,18 @@ public class HighscoresView extends JPanel {
 		_dataTable.setRowMargin(15);
 		_dataTable.setBackground(new Color(255,255,255));
 		
-		JPanel tableContainer = new JPanel();
-		tableContainer.setLayout(new BorderLayout());
-		tableContainer.add(_dataTable);
+		// the table is scrolled- only the visible rows are read from the highscores model
+		_dataTable.setPreferredScrollableViewportSize(new Dimension(480, VISIBLE_ROWS * _dataTable.getRowHeight()));
+		JScrollPane tableContainer = new JScrollPane(_dataTable, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+		tableContainer.setBorder(null);
 		
 		// add right panel to the view
-		rightConstraints.gridy = 1;
-		tableContainer.add(_dataTable.getTableHeader(), BorderLayout.PAGE_START);
-		tableContainer.add(_dataTable, BorderLayout.CENTER);
-		
+		rightConstraints.gridy = 2;
 		rightPanel.add(tableContainer, rightConstraints);
 		
 		viewConstraints.weighty = 1.0;	// workaround for placing the table in the top of the view instead of in the center
 		add(rightPanel, viewConstraints);
-		setPreferredSize(new Dimension(600, 500));
+		setPreferredSize(new Dimension(700, 620));
 	}
 	
 	/**
@@ -139,9 +160,94 @@ public class HighscoresView extends JPanel {
 		_highscores = highscores;
 		_dataTable.setModel(highscores);
 		// update columns width
-		_dataTable.getColumnModel().getColumn(0).setMinWidth(200);
-		_dataTable.getColumnModel().getColumn(1).setMinWidth(100);
-		_dataTable.getColumnModel().getColumn(2).setMinWidth(100);
+		_dataTable.getColumnModel().getColumn(0).setMinWidth(60);
+		_dataTable.getColumnModel().getColumn(1).setMinWidth(200);
+		_dataTable.getColumnModel().getColumn(2).setMinWidth(140);
+		_dataTable.getColumnModel().getColumn(3).setMinWidth(80);
+	}
+	
+	/**
+	 * set the levels of the level selection
+	 * @param levels levels keys
+	 * @param selectedLevel the selected level key
+	 */
+	public void setLevels(List<String> levels, String selectedLevel) {
+		// the listeners are notified only by the user's selection
+		ActionListener[] listeners = _levelComboBox.getActionListeners();
+		for (ActionListener listener : listeners) {
+			_levelComboBox.removeActionListener(listener);
+		}
+		
+		_levelComboBox.removeAllItems();
+		for (String level : levels) {
+			_levelComboBox.addItem(level);
+		}
+		_levelComboBox.setSelectedItem(selectedLevel);
+		
+		for (ActionListener listener : listeners) {
+			_levelComboBox.addActionListener(listener);
+		}
+	}
+	
+	/**
+	 * get the selected level
+	 * @return level key
+	 */
+	public String getSelectedLevel() {
+		return (String)_levelComboBox.getSelectedItem();
+	}
+	
+	/**
+	 * check if the personal bests are selected
+	 * @return true to show the best record of every player
+	 */
+	public boolean isPersonalBests() {
+		return _personalBestsCheckBox.isSelected();
+	}
+	
+	/**
+	 * add level or personal bests selection listener
+	 * @param filterListener
+	 */
+	public void addFilterListener(ActionListener filterListener) {
+		_levelComboBox.addActionListener(filterListener);
+		_personalBestsCheckBox.addActionListener(filterListener);
+	}
+	
+	/**
+	 * add table header click listener (sort by the clicked column)
+	 * @param sortListener
+	 */
+	public void addSortListener(MouseListener sortListener) {
+		_dataTable.getTableHeader().addMouseListener(sortListener);
+	}
+	
+	/**
+	 * get the table column in a point of the table header
+	 * @param point
+	 * @return model column index, or -1 if there is no column there
+	 */
+	public int getColumnAt(Point point) {
+		int column = _dataTable.getTableHeader().columnAtPoint(point);
+		return (column < 0) ? column : _dataTable.convertColumnIndexToModel(column);
+	}
+	
+	/**
+	 * scroll the table back to the first row (when the rows are replaced)
+	 */
+	public void scrollToTop() {
+		_dataTable.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+	}
+	
+	/**
+	 * show or hide the table header, by the number of records of the selected level
+	 */
+	public void updateTableHeader() {
+		// show highscores table only when there are at least 1 record
+		if (_highscores != null && _highscores.getRowCount() == 0)
+			_dataTable.getTableHeader().setVisible(false);
+		else
+			_dataTable.getTableHeader().setVisible(true);
 	}
 	
 	/**
@@ -161,12 +267,7 @@ public class HighscoresView extends JPanel {
 		// repaint the table when change view visibility to true
 		if (aFlag == true) {
 			_dataTable.repaint();
-			
-			// show highscores table only when there are at least 1 record
-			if (_highscores != null && _highscores.getRowCount() == 0)
-				_dataTable.getTableHeader().setVisible(false);
-			else
-				_dataTable.getTableHeader().setVisible(true);
+			updateTableHeader();
 		}
 		
 		super.setVisible(aFlag);
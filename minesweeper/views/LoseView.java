@@ -9,10 +9,10 @@ import java.awt.Insets;
 import java.awt.event.ActionListener;
 
 import javax.swing.ImageIcon;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 
 import minesweeper.views.components.MenuButton;
-import minesweeper.views.components.MinefieldPanel;
 import minesweeper.views.utils.AssetsManager;
 import minesweeper.views.utils.ViewUtilities;
 
@@ -75,7 +75,7 @@ public class LoseView extends JPanel {
 	 * set the game final board into the minefield placeholder panel
 	 * @param minefieldPanel  game board from the {@link GameView} view
 	 */
-	public void placeMinefield(MinefieldPanel minefieldPanel) {
+	public void placeMinefield(JComponent minefieldPanel) {
 		// remove all the component from the placeholder and add the last game board
 		_minefieldPlaceHolder.removeAll();
 		_minefieldPlaceHolder.add(minefieldPanel);
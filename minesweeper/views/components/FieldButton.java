@@ -61,9 +61,9 @@ public class FieldButton extends JToggleButton {
 		setIcon(ICON_NORMAL);
 		setRolloverIcon(ICON_NORMAL_MOUSEOVER);
 		
-		// set icons for the current level
-		_iconFlagged = new ImageIcon(AssetsManager.getResource(this.getClass(), AssetsManager.getCurrentLevelPrefix() + "_flag.png"));
-		_iconWrongFlag = new ImageIcon(AssetsManager.getResource(this.getClass(), AssetsManager.getCurrentLevelPrefix() + "_flag_x.png"));
+		// set icons for the current level (shared by all the buttons)
+		_iconFlagged = AssetsManager.getLevelTileIcon(FieldButton.class, "_flag.png");
+		_iconWrongFlag = AssetsManager.getLevelTileIcon(FieldButton.class, "_flag_x.png");
 	}
 	
 	/**
@@ -133,8 +133,9 @@ public class FieldButton extends JToggleButton {
 			} else {
 				setIcon(null);	// null icon
 				setRolloverIcon(null);
-				// set number
-				setText("<html><font color=" + ViewUtilities.convertToHex(AssetsManager.getCurrentLevelForegroundColor()) + ">" + _field.getValue().toString() + "</font></html>");
+				// set number (zero fields have no text, so skip the HTML layout)
+				if (!_field.getValue().equals(FieldValue.ZERO))
+					setText("<html><font color=" + ViewUtilities.convertToHex(AssetsManager.getCurrentLevelForegroundColor()) + ">" + _field.getValue().toString() + "</font></html>");
 			}
 		}
 		
@@ -0,0 +1,240 @@
+package minesweeper.views.components;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+
+import javax.swing.UIManager;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.Minefield;
+import minesweeper.views.utils.AssetsManager;
+
+/**
+ *  Minefield canvas- paints the whole board from the {@link Minefield} model, with no component per field.
+ *  the fields are painted from cached tiles, and mouse events are mapped to fields by their coordinates.
+ *  used instead of {@link MinefieldPanel} for large boards.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MinefieldCanvas extends MinefieldComponent {
+	private static final long serialVersionUID = 2950212374066398364L;
+
+	// UI properties (static final for performance issues)
+	private static final Image TILE_NORMAL = AssetsManager.getTileIcon(FieldButton.class, "field.png").getImage();
+	private static final Image TILE_NORMAL_MOUSEOVER = AssetsManager.getTileIcon(FieldButton.class, "field_hover.png").getImage();
+	private static final Image TILE_MINE = AssetsManager.getTileIcon(FieldButton.class, "mine.png").getImage();
+	private static final Image TILE_MINE_CLICKED = AssetsManager.getTileIcon(FieldButton.class, "mine_click.png").getImage();
+	private static final Font TEXT_FONT = new Font("Arial", Font.BOLD, 14);
+	private static final Color OPENED_COLOR = UIManager.getColor("ToggleButton.select") != null ? UIManager.getColor("ToggleButton.select") : Color.lightGray;
+
+	// component objects
+	private int _tileWidth, _tileHeight;
+	private Image _tileFlagged;
+	private Image _tileWrongFlag;
+	private Image[] _tilesOpened = new Image[Minefield.MINE];	// opened field tiles for values 0-8
+	private boolean _revealed;			// game over- show wrong flags
+	private int _mineClicked = -1;		// the field that triggered the GAME OVER
+	private int _hovered = -1;			// the field under the mouse
+
+	/**
+	 * create new minefield canvas
+	 * @param minefield	{@link Minefield} object model (minefield data)
+	 * @param fieldClickListener mouse listener for field's click
+	 */
+	public MinefieldCanvas(Minefield minefield, MouseListener fieldClickListener) {
+		super(minefield);
+		_tileWidth = FieldButton.BUTTON_SIZE.width;
+		_tileHeight = FieldButton.BUTTON_SIZE.height;
+
+		// tiles for the current level
+		_tileFlagged = AssetsManager.getLevelTileIcon(FieldButton.class, "_flag.png").getImage();
+		_tileWrongFlag = AssetsManager.getLevelTileIcon(FieldButton.class, "_flag_x.png").getImage();
+		for (int value = 0; value < _tilesOpened.length; value++) {
+			_tilesOpened[value] = createOpenedTile(value);
+		}
+
+		Dimension size = new Dimension(minefield.getSize().getWidth() * _tileWidth, minefield.getSize().getHeight() * _tileHeight);
+		setPreferredSize(size);
+		setSize(size);
+		setOpaque(false);	// transparent panel
+
+		addMouseListener(fieldClickListener);
+		addInternalListeners();
+	}
+
+	/**
+	 * create the tile of an opened field
+	 * @param value field value (0-8)
+	 * @return opened field tile
+	 */
+	private Image createOpenedTile(int value) {
+		BufferedImage tile = new BufferedImage(_tileWidth, _tileHeight, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = tile.createGraphics();
+		g2.setColor(OPENED_COLOR);
+		g2.fillRect(0, 0, _tileWidth, _tileHeight);
+
+		if (value > 0) {
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g2.setFont(TEXT_FONT);
+			g2.setColor(AssetsManager.getCurrentLevelForegroundColor());
+			FontMetrics metrics = g2.getFontMetrics();
+			String text = String.valueOf(value);
+			g2.drawString(text, (_tileWidth - metrics.stringWidth(text)) / 2, (_tileHeight - metrics.getHeight()) / 2 + metrics.getAscent());
+		}
+
+		g2.dispose();
+		return tile;
+	}
+
+	/**
+	 * add canvas listeners- for the mouse over tile
+	 */
+	private void addInternalListeners() {
+		MouseAdapter hoverListener = new MouseAdapter() {
+			@Override
+			public void mouseMoved(MouseEvent e) {
+				int row = getRow(e), col = getCol(e);
+				setHovered(row < 0 || col < 0 ? -1 : _minefield.getIndex(row, col));
+			}
+
+			@Override
+			public void mouseExited(MouseEvent e) {
+				setHovered(-1);
+			}
+		};
+
+		addMouseListener(hoverListener);
+		addMouseMotionListener(hoverListener);
+	}
+
+	/**
+	 * change the field under the mouse, and repaint the old and the new fields
+	 * @param index field index, or -1 for none
+	 */
+	private void setHovered(int index) {
+		if (index != _hovered) {
+			repaintCell(_hovered);
+			_hovered = index;
+			repaintCell(_hovered);
+		}
+	}
+
+	/**
+	 * repaint a single field
+	 * @param index field index, or -1 for none
+	 */
+	private void repaintCell(int index) {
+		if (index >= 0) {
+			int width = _minefield.getSize().getWidth();
+			repaint((index % width) * _tileWidth, (index / width) * _tileHeight, _tileWidth, _tileHeight);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.swing.JComponent#paintComponent(java.awt.Graphics)
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		int width = _minefield.getSize().getWidth();
+		int height = _minefield.getSize().getHeight();
+
+		// paint only the fields inside the clip
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+		int fromRow = Math.max(clip.y / _tileHeight, 0);
+		int toRow = Math.min((clip.y + clip.height - 1) / _tileHeight, height - 1);
+		int fromCol = Math.max(clip.x / _tileWidth, 0);
+		int toCol = Math.min((clip.x + clip.width - 1) / _tileWidth, width - 1);
+
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int col = fromCol; col <= toCol; col++) {
+				g.drawImage(getTile(row * width + col), col * _tileWidth, row * _tileHeight, null);
+			}
+		}
+	}
+
+	/**
+	 * get the tile for the current state of a field
+	 * @param index field index
+	 * @return field tile
+	 */
+	private Image getTile(int index) {
+		switch (_minefield.getCellState(index)) {
+		case Minefield.STATE_FLAGGED:
+			return (_revealed && !_minefield.isMine(index)) ? _tileWrongFlag : _tileFlagged;
+		case Minefield.STATE_OPENED:
+			if (_minefield.isMine(index))
+				return (index == _mineClicked) ? TILE_MINE_CLICKED : TILE_MINE;
+			return _tilesOpened[_minefield.getCellValue(index)];
+		default:
+			return (index == _hovered) ? TILE_NORMAL_MOUSEOVER : TILE_NORMAL;
+		}
+	}
+
+	/**
+	 * repaint only the bounding rectangle of the changed fields
+	 * @see minesweeper.views.components.MinefieldComponent#updateFields(minesweeper.model.CellChanges, boolean)
+	 */
+	@Override
+	public void updateFields(CellChanges changes, boolean reveal) {
+		_revealed |= reveal;
+
+		if (changes.size() == 0)
+			return;
+
+		int minRow = Integer.MAX_VALUE, maxRow = -1, minCol = Integer.MAX_VALUE, maxCol = -1;
+		for (int i = 0; i < changes.size(); i++) {
+			int row = changes.getRow(i), col = changes.getCol(i);
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+			minCol = Math.min(minCol, col);
+			maxCol = Math.max(maxCol, col);
+		}
+
+		repaint(minCol * _tileWidth, minRow * _tileHeight, (maxCol - minCol + 1) * _tileWidth, (maxRow - minRow + 1) * _tileHeight);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#setMineClicked(int, int)
+	 */
+	@Override
+	public void setMineClicked(int row, int col) {
+		_mineClicked = _minefield.getIndex(row, col);
+		repaintCell(_mineClicked);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#getRow(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public int getRow(MouseEvent e) {
+		int row = e.getY() / _tileHeight;
+		return (e.getY() >= 0 && row < _minefield.getSize().getHeight()) ? row : -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#getCol(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public int getCol(MouseEvent e) {
+		int col = e.getX() / _tileWidth;
+		return (e.getX() >= 0 && col < _minefield.getSize().getWidth()) ? col : -1;
+	}
+}
@@ -0,0 +1,145 @@
+package minesweeper.views.components;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JPanel;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.Minefield;
+
+/**
+ *  Minefield Component- the base class of the game board views.
+ *  the board receives the field click listener in its constructor, and maps the listener's mouse events to fields.
+ *  a hint field is highlighted over the board, whatever the fields are painted by.
+ *  @see MinefieldPanel
+ *  @see MinefieldCanvas
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public abstract class MinefieldComponent extends JPanel {
+	private static final long serialVersionUID = -6178241097313416950L;
+	
+	// UI properties (static final for performance issues)
+	private static final Color HINT_SAFE_COLOR = new Color(0, 190, 60);
+	private static final Color HINT_RISK_COLOR = new Color(255, 150, 0);
+	private static final BasicStroke HINT_STROKE = new BasicStroke(3);
+	
+	protected Minefield _minefield;	// the board model
+	private int _hintRow = -1, _hintCol = -1;	// the highlighted hint field
+	private boolean _hintSafe;		// the hint field is certainly safe
+
+	/**
+	 * create new minefield component
+	 * @param minefield	{@link Minefield} object model (minefield data)
+	 */
+	protected MinefieldComponent(Minefield minefield) {
+		_minefield = minefield;
+	}
+
+	/**
+	 * get the board model
+	 * @return {@link Minefield} object model
+	 */
+	public Minefield getMinefield() {
+		return _minefield;
+	}
+
+	/**
+	 * highlight a hint field, and scroll it into view
+	 * @param row
+	 * @param col
+	 * @param safe true if the field is certainly safe, false if it is only the lowest risk field
+	 */
+	public void setHint(int row, int col, boolean safe) {
+		clearHint();
+		_hintRow = row;
+		_hintCol = col;
+		_hintSafe = safe;
+
+		Rectangle bounds = getFieldBounds(row, col);
+		scrollRectToVisible(bounds);
+		repaint(bounds);
+	}
+
+	/**
+	 * remove the hint highlight
+	 */
+	public void clearHint() {
+		if (_hintRow >= 0) {
+			repaint(getFieldBounds(_hintRow, _hintCol));
+			_hintRow = _hintCol = -1;
+		}
+	}
+
+	/**
+	 * get the bounds of a field in the board
+	 * @param row
+	 * @param col
+	 * @return field bounds
+	 */
+	private Rectangle getFieldBounds(int row, int col) {
+		return new Rectangle(col * FieldButton.BUTTON_SIZE.width, row * FieldButton.BUTTON_SIZE.height, FieldButton.BUTTON_SIZE.width, FieldButton.BUTTON_SIZE.height);
+	}
+
+	/**
+	 * paint the board, and the hint highlight over its fields
+	 * @see javax.swing.JComponent#paint(java.awt.Graphics)
+	 */
+	@Override
+	public void paint(Graphics g) {
+		super.paint(g);
+
+		if (_hintRow >= 0) {
+			Graphics2D g2 = (Graphics2D)g.create();
+			Rectangle bounds = getFieldBounds(_hintRow, _hintCol);
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g2.setColor(_hintSafe ? HINT_SAFE_COLOR : HINT_RISK_COLOR);
+			g2.setStroke(HINT_STROKE);
+			g2.drawRoundRect(bounds.x + 2, bounds.y + 2, bounds.width - 4, bounds.height - 4, 6, 6);
+			g2.dispose();
+		}
+	}
+
+	/**
+	 * while a hint is shown, field repaints go through the board, so they don't paint over the highlight
+	 * @see javax.swing.JComponent#isOptimizedDrawingEnabled()
+	 */
+	@Override
+	public boolean isOptimizedDrawingEnabled() {
+		return _hintRow < 0 && super.isOptimizedDrawingEnabled();
+	}
+
+	/**
+	 * update the fields changed by a single move
+	 * @param changes changed cells
+	 * @param reveal true to open all the changed fields (game over), false to show their current state
+	 */
+	public abstract void updateFields(CellChanges changes, boolean reveal);
+
+	/**
+	 * mark the field that triggered the GAME OVER
+	 * @param row
+	 * @param col
+	 */
+	public abstract void setMineClicked(int row, int col);
+
+	/**
+	 * get the row of the field a mouse event occurred on
+	 * @param e mouse event from the field click listener
+	 * @return field row, or -1 if the event is not on a field
+	 */
+	public abstract int getRow(MouseEvent e);
+
+	/**
+	 * get the column of the field a mouse event occurred on
+	 * @param e mouse event from the field click listener
+	 * @return field column, or -1 if the event is not on a field
+	 */
+	public abstract int getCol(MouseEvent e);
+}
\ No newline at end of file
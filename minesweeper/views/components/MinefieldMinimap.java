@@ -0,0 +1,156 @@
+package minesweeper.views.components;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+
+import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import minesweeper.model.CellChanges;
+import minesweeper.model.Minefield;
+
+/**
+ *  Minefield Minimap- a small overview of a scrolling board, with the visible area marked.
+ *  holds one pixel per field (updated only for the changed fields), and scrolls the board on click & drag.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class MinefieldMinimap extends JPanel {
+	private static final long serialVersionUID = -1823365962380527913L;
+
+	// UI properties (static final for performance issues)
+	public static final int MAX_SIZE = 150;
+	private static final Color VIEWPORT_COLOR = new Color(226, 0, 1);
+	private static final byte PIXEL_UNFLAGGED = 0, PIXEL_OPENED = 1, PIXEL_FLAGGED = 2, PIXEL_MINE = 3;
+	private static final IndexColorModel COLORS = new IndexColorModel(2, 4,
+			new byte[] { (byte)233, (byte)184, (byte)226, 0 },	// red
+			new byte[] { (byte)190, (byte)207, 0, 0 },			// green
+			new byte[] { (byte)128, (byte)229, 0, 0 });			// blue
+
+	// component objects
+	private Minefield _minefield;
+	private JViewport _viewport;
+	private BufferedImage _image;	// one pixel per field
+	private double _scale;			// minimap pixels per board pixel
+
+	/**
+	 * create a new minimap
+	 * @param minefield {@link Minefield} object model
+	 * @param viewport the scrolling viewport of the board
+	 */
+	public MinefieldMinimap(Minefield minefield, JViewport viewport) {
+		_minefield = minefield;
+		_viewport = viewport;
+
+		int width = minefield.getSize().getWidth();
+		int height = minefield.getSize().getHeight();
+		_image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, COLORS);
+
+		Dimension boardSize = viewport.getView().getPreferredSize();
+		_scale = Math.min((double)MAX_SIZE / boardSize.width, (double)MAX_SIZE / boardSize.height);
+		Dimension size = new Dimension((int)Math.ceil(boardSize.width * _scale), (int)Math.ceil(boardSize.height * _scale));
+		setPreferredSize(size);
+		setMaximumSize(size);
+		setOpaque(false);
+
+		addInternalListeners();
+	}
+
+	/**
+	 * add minimap listeners- repaint on scroll, and scroll the board on click & drag
+	 */
+	private void addInternalListeners() {
+		_viewport.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				repaint();
+			}
+		});
+
+		MouseAdapter scrollListener = new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				scrollTo(e.getPoint());
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				scrollTo(e.getPoint());
+			}
+		};
+		addMouseListener(scrollListener);
+		addMouseMotionListener(scrollListener);
+	}
+
+	/**
+	 * center the board viewport around a minimap point
+	 * @param point minimap point
+	 */
+	private void scrollTo(Point point) {
+		Dimension viewSize = _viewport.getViewSize();
+		Dimension extent = _viewport.getExtentSize();
+		int x = (int)(point.x / _scale) - extent.width / 2;
+		int y = (int)(point.y / _scale) - extent.height / 2;
+
+		x = Math.max(0, Math.min(x, viewSize.width - extent.width));
+		y = Math.max(0, Math.min(y, viewSize.height - extent.height));
+		_viewport.setViewPosition(new Point(x, y));
+	}
+
+	/**
+	 * update the pixels of the fields changed by a single move
+	 * @param changes changed cells
+	 */
+	public void updateFields(CellChanges changes) {
+		WritableRaster raster = _image.getRaster();
+
+		for (int i = 0; i < changes.size(); i++) {
+			int index = changes.get(i);
+			byte pixel;
+
+			switch (_minefield.getCellState(index)) {
+			case Minefield.STATE_OPENED:
+				pixel = _minefield.isMine(index) ? PIXEL_MINE : PIXEL_OPENED;
+				break;
+			case Minefield.STATE_FLAGGED:
+				pixel = PIXEL_FLAGGED;
+				break;
+			default:
+				pixel = PIXEL_UNFLAGGED;
+			}
+
+			raster.setSample(changes.getCol(i), changes.getRow(i), 0, pixel);
+		}
+
+		if (changes.size() > 0)
+			repaint();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see javax.swing.JComponent#paintComponent(java.awt.Graphics)
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D)g;
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g2.drawImage(_image, 0, 0, getPreferredSize().width, getPreferredSize().height, null);
+
+		// mark the visible area
+		Rectangle view = _viewport.getViewRect();
+		g2.setColor(VIEWPORT_COLOR);
+		g2.drawRect((int)(view.x * _scale), (int)(view.y * _scale), (int)(view.width * _scale) - 1, (int)(view.height * _scale) - 1);
+	}
+}
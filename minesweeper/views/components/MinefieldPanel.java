@@ -1,10 +1,12 @@
 package minesweeper.views.components;
 
 import java.awt.GridLayout;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 
-import javax.swing.JPanel;
-
+import minesweeper.model.CellChanges;
+import minesweeper.model.FieldState;
 import minesweeper.model.Minefield;
 import minesweeper.model.Size;
 
@@ -13,7 +15,7 @@ import minesweeper.model.Size;
  *  @author     Lidan Hifi
  *  @version    1.0
  */
-public class MinefieldPanel extends JPanel {
+public class MinefieldPanel extends MinefieldComponent {
 	private static final long serialVersionUID = 7885981401108580383L;
 	private FieldButton _fields[][];	// field button matrix
 	
@@ -23,6 +25,7 @@ public class MinefieldPanel extends JPanel {
 	 * @param fieldClickListener mouse listener for field's click
 	 */
 	public MinefieldPanel(Minefield minefield, MouseListener fieldClickListener) {
+		super(minefield);
 		Size gameSize = minefield.getSize();
 		
 		GridLayout grid = new GridLayout(gameSize.getHeight(), gameSize.getWidth());
@@ -44,12 +47,37 @@ public class MinefieldPanel extends JPanel {
 	}
 	
 	/**
-	 * open field button
-	 * @param row
-	 * @param col
+	 * update the field buttons of the cells changed by a single move, and repaint only the bounding rectangle of the changes
+	 * (the buttons don't repaint the whole panel, so a move costs one paint of the changed area)
+	 * @see minesweeper.views.components.MinefieldComponent#updateFields(minesweeper.model.CellChanges, boolean)
 	 */
-	public void openField(int row, int col) {
-		_fields[row][col].open();
+	@Override
+	public void updateFields(CellChanges changes, boolean reveal) {
+		if (changes.size() == 0)
+			return;
+
+		int minRow = Integer.MAX_VALUE, maxRow = -1, minCol = Integer.MAX_VALUE, maxCol = -1;
+
+		for (int i = 0; i < changes.size(); i++) {
+			int row = changes.getRow(i), col = changes.getCol(i);
+			FieldButton fieldButton = _fields[row][col];
+
+			if (reveal || fieldButton.getField().getState().equals(FieldState.OPENED)) {
+				fieldButton.open();
+			} else if (fieldButton.isFlagged()) {
+				fieldButton.flag();
+			} else {
+				fieldButton.unflag();
+			}
+
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+			minCol = Math.min(minCol, col);
+			maxCol = Math.max(maxCol, col);
+		}
+
+		Rectangle dirty = _fields[minRow][minCol].getBounds().union(_fields[maxRow][maxCol].getBounds());
+		repaint(dirty);
 	}
 
 	/**
@@ -61,4 +89,31 @@ public class MinefieldPanel extends JPanel {
 	public FieldButton getField(int row, int col) {
 		return _fields[row][col];
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#setMineClicked(int, int)
+	 */
+	@Override
+	public void setMineClicked(int row, int col) {
+		_fields[row][col].setMineClickIcon();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#getRow(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public int getRow(MouseEvent e) {
+		return ((FieldButton)e.getSource()).getRow();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see minesweeper.views.components.MinefieldComponent#getCol(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public int getCol(MouseEvent e) {
+		return ((FieldButton)e.getSource()).getCol();
+	}
 }
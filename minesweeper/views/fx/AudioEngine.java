@@ -0,0 +1,439 @@
+package minesweeper.views.fx;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ *  Audio Engine- plays short sounds with low latency through a software mixer.
+ *  every sound is decoded once into 16 bit PCM. a single mixer thread sums the active voices into one output line,
+ *  and receives the play commands through a bounded lock-free queue, so triggering a sound never blocks and never allocates.
+ *  when all the voices are busy, the oldest voice is dropped for the new sound.
+ *  the trigger-to-sound latency (until the first samples are written, plus the audio already queued in the line) is measured for every sound.
+ *  @author     Lidan Hifi
+ *  @version    1.0
+ */
+public class AudioEngine implements Runnable {
+	// mixer format- all the game sounds are 44.1 kHz 16 bit stereo
+	private static final AudioFormat MIX_FORMAT = new AudioFormat(44100, 16, 2, true, false);
+	private static final int FRAMES_PER_CHUNK = 256;		// frames mixed per line write (~6 ms)
+	private static final int LINE_BUFFER_FRAMES = 2048;		// output line buffer (~46 ms)
+	private static final int BUFFER_SIZE = 16384;			// decoding buffer size
+	private static final int STOP_ALL = -1;					// stop command
+
+	// loaded sounds by id (replaced on load, read by the mixer thread)
+	private volatile short[][] _sounds = new short[0][];
+	private Map<String, Integer> _soundIds = new HashMap<String, Integer>();	// loaded sound ids by file (-1 if failed)
+
+	// mixer
+	private CommandQueue _commands;		// commands from the triggering threads
+	private volatile Thread _mixerThread;
+	private SourceDataLine _line;
+
+	// voices (mixer thread only)
+	private int[] _voiceSounds;			// playing sound, or -1 for a free voice
+	private int[] _voicePositions;		// next sample of each voice
+	private long[] _voiceStartTimes;	// when each voice was triggered (for dropping the oldest voice)
+	private long[] _pendingLatencies;	// trigger time of each voice, until its first samples are written
+	private int[] _mix;					// mixing buffer
+	private byte[] _output;				// output buffer
+
+	// statistics
+	private volatile long _lastLatency, _maxLatency, _totalLatency, _latencySamples;
+	private volatile long _droppedVoices;
+	private AtomicLong _droppedCommands = new AtomicLong();
+
+	/**
+	 * create a new audio engine
+	 * @param maxVoices maximum number of sounds played at the same time
+	 * @param queueCapacity maximum number of play commands waiting for the mixer (rounded up to a power of 2)
+	 */
+	public AudioEngine(int maxVoices, int queueCapacity) {
+		_commands = new CommandQueue(queueCapacity);
+		_voiceSounds = new int[maxVoices];
+		_voicePositions = new int[maxVoices];
+		_voiceStartTimes = new long[maxVoices];
+		_pendingLatencies = new long[maxVoices];
+		_mix = new int[FRAMES_PER_CHUNK * MIX_FORMAT.getChannels()];
+		_output = new byte[FRAMES_PER_CHUNK * MIX_FORMAT.getFrameSize()];
+
+		for (int voice = 0; voice < maxVoices; voice++) {
+			_voiceSounds[voice] = -1;
+		}
+	}
+
+	/**
+	 * decode a sound file, so it can be played. a file is decoded only once, and the mixer is started on the first loaded sound.
+	 * @param soundFile sound file's URL
+	 * @return sound id, or -1 if the sound cannot be played
+	 */
+	public synchronized int load(URL soundFile) {
+		if (soundFile == null)
+			return -1;
+
+		Integer soundId = _soundIds.get(soundFile.toString());
+		if (soundId == null) {
+			soundId = decode(soundFile);
+			_soundIds.put(soundFile.toString(), soundId);
+		}
+
+		return soundId;
+	}
+
+	/**
+	 * decode a sound file into a new sound
+	 * @param soundFile sound file's URL
+	 * @return sound id, or -1 if the sound cannot be played
+	 */
+	private int decode(URL soundFile) {
+		try {
+			// decode the whole file into PCM data in the mixer format
+			AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(soundFile);
+			if (!audioInputStream.getFormat().matches(MIX_FORMAT))
+				audioInputStream = AudioSystem.getAudioInputStream(MIX_FORMAT, audioInputStream);
+
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = audioInputStream.read(buffer, 0, buffer.length)) != -1) {
+				data.write(buffer, 0, bytesRead);
+			}
+			audioInputStream.close();
+
+			// little endian bytes to samples
+			byte[] bytes = data.toByteArray();
+			short[] samples = new short[bytes.length / 2];
+			for (int i = 0; i < samples.length; i++) {
+				samples[i] = (short)((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8));
+			}
+
+			startMixer();
+
+			short[][] sounds = new short[_sounds.length + 1][];
+			System.arraycopy(_sounds, 0, sounds, 0, _sounds.length);
+			sounds[_sounds.length] = samples;
+			_sounds = sounds;
+			return sounds.length - 1;
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+			return -1;
+		}
+	}
+
+	/**
+	 * play a loaded sound. can be called from any thread, and returns immediately.
+	 * @param soundId sound id (from load)
+	 */
+	public void play(int soundId) {
+		if (soundId >= 0)
+			send(soundId);
+	}
+
+	/**
+	 * stop all the playing sounds
+	 */
+	public void stopAll() {
+		send(STOP_ALL);
+	}
+
+	/**
+	 * send a command to the mixer thread, and wake it up.
+	 * if the queue is full, the command is dropped.
+	 * @param command sound id or STOP_ALL
+	 */
+	private void send(int command) {
+		Thread mixerThread = _mixerThread;
+		if (mixerThread == null)
+			return;
+
+		if (!_commands.offer(command, System.nanoTime()))
+			_droppedCommands.incrementAndGet();
+		LockSupport.unpark(mixerThread);
+	}
+
+	/**
+	 * open the output line and start the mixer thread, if not started yet
+	 * @throws Exception if the output line cannot be opened
+	 */
+	private void startMixer() throws Exception {
+		if (_mixerThread != null)
+			return;
+
+		_line = AudioSystem.getSourceDataLine(MIX_FORMAT);
+		_line.open(MIX_FORMAT, LINE_BUFFER_FRAMES * MIX_FORMAT.getFrameSize());
+		_line.start();
+
+		Thread mixerThread = new Thread(this, "Audio Mixer");
+		mixerThread.setDaemon(true);
+		mixerThread.setPriority(Thread.MAX_PRIORITY);
+		_mixerThread = mixerThread;
+		mixerThread.start();
+	}
+
+	/**
+	 * mixer loop- start the commanded voices, mix the next chunk of the active voices and write it to the line.
+	 * the line write blocks while the line is full, and the thread sleeps while there is nothing to play.
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		while (true) {
+			while (_commands.poll()) {
+				if (_commands.getPolledCommand() == STOP_ALL)
+					stopVoices();
+				else
+					startVoice(_commands.getPolledCommand(), _commands.getPolledTime());
+			}
+
+			if (!mixChunk()) {
+				LockSupport.park(this);		// silence- wait for a command
+				continue;
+			}
+
+			// latency of the voices started in this chunk- until now, plus the audio queued before the chunk
+			long now = System.nanoTime();
+			long queued = (long)((_line.getBufferSize() - _line.available()) / MIX_FORMAT.getFrameSize() * 1e9 / MIX_FORMAT.getSampleRate());
+			for (int voice = 0; voice < _pendingLatencies.length; voice++) {
+				if (_pendingLatencies[voice] != 0) {
+					recordLatency(now - _pendingLatencies[voice] + queued);
+					_pendingLatencies[voice] = 0;
+				}
+			}
+
+			_line.write(_output, 0, _output.length);
+		}
+	}
+
+	/**
+	 * start a voice for a sound. if all the voices are busy, the oldest voice is dropped.
+	 * @param soundId sound id
+	 * @param triggerTime when the sound was triggered
+	 */
+	private void startVoice(int soundId, long triggerTime) {
+		int voice = 0;
+		for (int i = 0; i < _voiceSounds.length; i++) {
+			if (_voiceSounds[i] == -1) {
+				voice = i;
+				break;
+			}
+			if (_voiceStartTimes[i] < _voiceStartTimes[voice])
+				voice = i;
+		}
+
+		if (_voiceSounds[voice] != -1)
+			_droppedVoices++;
+
+		_voiceSounds[voice] = soundId;
+		_voicePositions[voice] = 0;
+		_voiceStartTimes[voice] = triggerTime;
+		_pendingLatencies[voice] = triggerTime;
+	}
+
+	/**
+	 * stop all the voices
+	 */
+	private void stopVoices() {
+		for (int voice = 0; voice < _voiceSounds.length; voice++) {
+			_voiceSounds[voice] = -1;
+			_pendingLatencies[voice] = 0;
+		}
+	}
+
+	/**
+	 * sum the next chunk of all the active voices into the output buffer
+	 * @return true if any voice was active, false for silence
+	 */
+	private boolean mixChunk() {
+		short[][] sounds = _sounds;
+		boolean active = false;
+
+		for (int i = 0; i < _mix.length; i++) {
+			_mix[i] = 0;
+		}
+
+		for (int voice = 0; voice < _voiceSounds.length; voice++) {
+			if (_voiceSounds[voice] == -1)
+				continue;
+
+			short[] samples = sounds[_voiceSounds[voice]];
+			int position = _voicePositions[voice];
+			int length = Math.min(_mix.length, samples.length - position);
+			for (int i = 0; i < length; i++) {
+				_mix[i] += samples[position + i];
+			}
+
+			active = true;
+			_voicePositions[voice] = position + length;
+			if (_voicePositions[voice] >= samples.length)
+				_voiceSounds[voice] = -1;	// the voice has finished
+		}
+
+		if (!active)
+			return false;
+
+		// clip the sum to 16 bit, little endian
+		for (int i = 0; i < _mix.length; i++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, _mix[i]));
+			_output[2 * i] = (byte)sample;
+			_output[2 * i + 1] = (byte)(sample >> 8);
+		}
+
+		return true;
+	}
+
+	/**
+	 * record the latency of a played sound (mixer thread only)
+	 * @param latency latency in nanoseconds
+	 */
+	private void recordLatency(long latency) {
+		_lastLatency = latency;
+		_maxLatency = Math.max(_maxLatency, latency);
+		_totalLatency += latency;
+		_latencySamples++;
+	}
+
+	/**
+	 * get the latency of the last played sound
+	 * @return latency in nanoseconds
+	 */
+	public long getLastLatency() {
+		return _lastLatency;
+	}
+
+	/**
+	 * get the maximum latency of all the played sounds
+	 * @return latency in nanoseconds
+	 */
+	public long getMaxLatency() {
+		return _maxLatency;
+	}
+
+	/**
+	 * get the average latency of all the played sounds
+	 * @return latency in nanoseconds
+	 */
+	public long getAverageLatency() {
+		long samples = _latencySamples;
+		return (samples == 0) ? 0 : _totalLatency / samples;
+	}
+
+	/**
+	 * get the number of playing voices that were dropped for newer sounds
+	 * @return dropped voices
+	 */
+	public long getDroppedVoices() {
+		return _droppedVoices;
+	}
+
+	/**
+	 * get the number of play commands that were dropped because the queue was full
+	 * @return dropped commands
+	 */
+	public long getDroppedCommands() {
+		return _droppedCommands.get();
+	}
+
+	/**
+	 *  Command Queue- bounded lock-free queue of mixer commands, for many triggering threads and a single mixer thread.
+	 *  every slot has a sequence number: a trigger claims a slot by advancing the tail, and publishes it by advancing the slot's sequence.
+	 *  the mixer frees the slot for the next round the same way, so offer & poll never lock and never allocate.
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class CommandQueue {
+		private int _mask;
+		private AtomicLongArray _sequences;
+		private int[] _commands;
+		private long[] _times;
+		private AtomicLong _tail = new AtomicLong();
+		private long _head;				// mixer thread only
+		private int _polledCommand;		// last polled command (mixer thread only)
+		private long _polledTime;
+
+		/**
+		 * create a new command queue
+		 * @param capacity maximum number of commands (rounded up to a power of 2)
+		 */
+		public CommandQueue(int capacity) {
+			int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+			_mask = size - 1;
+			_sequences = new AtomicLongArray(size);
+			_commands = new int[size];
+			_times = new long[size];
+
+			for (int i = 0; i < size; i++) {
+				_sequences.set(i, i);
+			}
+		}
+
+		/**
+		 * add a command to the queue
+		 * @param command command
+		 * @param time trigger time
+		 * @return true if added, false if the queue is full
+		 */
+		public boolean offer(int command, long time) {
+			long tail;
+			int slot;
+
+			while (true) {
+				tail = _tail.get();
+				slot = (int)(tail & _mask);
+				long sequence = _sequences.get(slot);
+
+				if (sequence == tail) {
+					if (_tail.compareAndSet(tail, tail + 1))
+						break;		// the slot is claimed
+				} else if (sequence < tail) {
+					return false;	// the slot was not freed yet- the queue is full
+				}
+			}
+
+			_commands[slot] = command;
+			_times[slot] = time;
+			_sequences.lazySet(slot, tail + 1);		// publish the command
+			return true;
+		}
+
+		/**
+		 * take the next command from the queue (see getPolledCommand & getPolledTime)
+		 * @return true if a command was taken, false if the queue is empty
+		 */
+		public boolean poll() {
+			int slot = (int)(_head & _mask);
+			if (_sequences.get(slot) != _head + 1)
+				return false;
+
+			_polledCommand = _commands[slot];
+			_polledTime = _times[slot];
+			_sequences.lazySet(slot, _head + _mask + 1);	// free the slot for the next round
+			_head++;
+			return true;
+		}
+
+		/**
+		 * get the last polled command
+		 * @return command
+		 */
+		public int getPolledCommand() {
+			return _polledCommand;
+		}
+
+		/**
+		 * get the trigger time of the last polled command
+		 * @return trigger time
+		 */
+		public long getPolledTime() {
+			return _polledTime;
+		}
+	}
+}
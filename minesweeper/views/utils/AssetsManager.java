@@ -3,11 +3,19 @@ package minesweeper.views.utils;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontFormatException;
+import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
 
 import minesweeper.model.Level;
 
@@ -22,15 +30,105 @@ public class AssetsManager {
 	private static String _currentLevelPrefix = Level.easy().getAssetsPrefix();		// Level prefix, for accessing Level's specific assets
 	private static Font _baseFont;
 	
+	// tiles atlas- decoded, screen compatible images for the current level, keyed by class & asset name
+	private static Map<String, ImageIcon> _tiles = new HashMap<String, ImageIcon>();
+	private static int _tilesHits, _tilesMisses;
+	
 	/**
 	 * update level UI (get level's prefix and level lables color)
+	 * the tiles atlas is cleared when the level theme changes
 	 * @param level - current level, chosen by the user
 	 */
 	public static void updateLevelUI(Level level) {
+		if (!level.getAssetsPrefix().equals(_currentLevelPrefix) || !level.getColor().equals(_gameLablesColor))
+			invalidateTiles();
+		
 		_currentLevelPrefix = level.getAssetsPrefix();
 		_gameLablesColor = level.getColor();
 	}
 	
+	/**
+	 * get a tile from the tiles atlas. the tile is decoded and converted to a screen compatible image on the first request only,
+	 * and shared by all the components until the level theme changes
+	 * @param classObj	class object for accessing class asset's folder
+	 * @param assetName image asset name
+	 * @return tile icon, or null if the asset does not exist
+	 */
+	public static ImageIcon getTileIcon(Class<?> classObj, String assetName) {
+		String key = classObj.getSimpleName() + "/" + assetName;
+		ImageIcon tile = _tiles.get(key);
+		
+		if (tile != null) {
+			_tilesHits++;
+			return tile;
+		}
+		
+		_tilesMisses++;
+		URL resource = getResource(classObj, assetName);
+		if (resource == null)
+			return null;
+		
+		tile = new ImageIcon(toCompatibleImage(new ImageIcon(resource).getImage()));
+		_tiles.put(key, tile);
+		return tile;
+	}
+	
+	/**
+	 * get a tile of the current level from the tiles atlas (the asset name is prefixed by the level prefix)
+	 * @param classObj	class object for accessing class asset's folder
+	 * @param assetName image asset name, without the level prefix
+	 * @return tile icon, or null if the asset does not exist
+	 */
+	public static ImageIcon getLevelTileIcon(Class<?> classObj, String assetName) {
+		return getTileIcon(classObj, _currentLevelPrefix + assetName);
+	}
+	
+	/**
+	 * clear the tiles atlas (the tiles are built again on the next request)
+	 */
+	public static void invalidateTiles() {
+		_tiles.clear();
+	}
+	
+	/**
+	 * get the number of tiles requests served from the atlas
+	 * @return atlas hits
+	 */
+	public static int getTilesHits() {
+		return _tilesHits;
+	}
+	
+	/**
+	 * get the number of tiles requests which decoded a new tile
+	 * @return atlas misses
+	 */
+	public static int getTilesMisses() {
+		return _tilesMisses;
+	}
+	
+	/**
+	 * copy a decoded image into an image compatible with the screen, so drawing it needs no conversion
+	 * @param image decoded image
+	 * @return compatible image (or a translucent image when there is no screen)
+	 */
+	private static Image toCompatibleImage(Image image) {
+		int width = image.getWidth(null), height = image.getHeight(null);
+		if (width <= 0 || height <= 0)
+			return image;
+		
+		BufferedImage compatible;
+		GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+		if (GraphicsEnvironment.isHeadless())
+			compatible = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		else
+			compatible = ge.getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		
+		Graphics2D g2 = compatible.createGraphics();
+		g2.drawImage(image, 0, 0, null);
+		g2.dispose();
+		return compatible;
+	}
+	
 	/**
 	 * get current level foreground color
 	 * @return current level foreground color
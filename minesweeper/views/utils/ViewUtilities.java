@@ -7,6 +7,8 @@ import java.awt.Image;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  *  Views Helper Methods
@@ -14,6 +16,17 @@ import java.awt.image.BufferedImage;
  *  @version    1.0
  */
 public class ViewUtilities {
+	private static final int SCALED_IMAGES_CACHE_SIZE = 8;	// scaled images kept in the cache
+	
+	// scaled images cache (least recently used images are removed first)
+	private static final Map<ScaledImageKey, Image> _scaledImages = new LinkedHashMap<ScaledImageKey, Image>(16, 0.75f, true) {
+		private static final long serialVersionUID = -2634094946153290342L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ScaledImageKey, Image> eldest) {
+			return size() > SCALED_IMAGES_CACHE_SIZE;
+		}
+	};
 	
 	/**
 	 * get scale factor for scaling images
@@ -48,13 +61,32 @@ public class ViewUtilities {
 	    return dScale;
 	}
 	
+	/**
+	 * get a resized image for a given target size.
+	 * the resized images are cached by source image & target size, so repainting a view in the same size only draws the cached image
+	 * @param image - source image to scale
+	 * @param size	- target size
+	 * @return - the resized image
+	 */
+	public static Image getScaleImage(Image image, Dimension size) {
+		ScaledImageKey key = new ScaledImageKey(image, size.width, size.height);
+		Image scaledImage = _scaledImages.get(key);
+		
+		if (scaledImage == null) {
+			scaledImage = scaleImage(image, size);
+			_scaledImages.put(key, scaledImage);
+		}
+		
+		return scaledImage;
+	}
+	
 	/**
 	 * Resizes an image using a Graphics2D object backed by a BufferedImage.
 	 * @param image - source image to scale
 	 * @param size	- target size
 	 * @return - the new resized image
 	 */
-	public static Image getScaleImage(Image image, Dimension size) {
+	private static Image scaleImage(Image image, Dimension size) {
 		double scaleFactor = Math.min(1d, getScaleFactorToFill(new Dimension(image.getWidth(null), image.getHeight(null)), size));
 
 		// calculate the image width & height by scale factor
@@ -83,4 +115,48 @@ public class ViewUtilities {
 		}
 		return "#" + hex;
 	}
+	
+	/**
+	 *  Scaled image cache key- the source image (by identity) and the target size
+	 *  @author     Lidan Hifi
+	 *  @version    1.0
+	 */
+	private static class ScaledImageKey {
+		private Image _image;
+		private int _width, _height;
+		
+		/**
+		 * create a new key
+		 * @param image source image
+		 * @param width target width
+		 * @param height target height
+		 */
+		public ScaledImageKey(Image image, int width, int height) {
+			_image = image;
+			_width = width;
+			_height = height;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ScaledImageKey))
+				return false;
+			
+			ScaledImageKey other = (ScaledImageKey)obj;
+			return _image == other._image && _width == other._width && _height == other._height;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(_image) * 31 + _width) * 31 + _height;
+		}
+	}
 }